@@ -29,15 +29,30 @@ android {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+            all {
+                // Paths and options of PersistenceBenchmarkTest, which only runs with -PpersistenceBenchmark.run=true
+                it.systemProperty("persistenceBenchmark.run", findProperty("persistenceBenchmark.run") ?: "false")
+                it.systemProperty("persistenceBenchmark.reportDir", layout.buildDirectory.dir("reports/persistence-benchmark").get().asFile.path)
+                it.systemProperty("persistenceBenchmark.baselineFile", file("src/test/resources/persistence-benchmark-baseline.json").path)
+                it.systemProperty("persistenceBenchmark.updateBaseline", findProperty("persistenceBenchmark.updateBaseline") ?: "false")
+            }
+        }
+    }
 }
 
 dependencies {
 
+    implementation(project(":core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
@@ -0,0 +1,63 @@
+package com.patino.todolistapp;
+
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Debug screen that shows the counters and latency histograms recorded by Metrics.
+ *
+ * Only part of debug builds, where it has its own launcher entry. The same output is available from
+ * "adb shell dumpsys activity com.patino.todolistapp/.MainActivity".
+ */
+public class MetricsActivity extends AppCompatActivity {
+    private TextView metricsText;
+
+    /**
+     * Called when the activity is created.
+     *
+     * Initializes the views and sets up the buttons to refresh and reset the metrics.
+     *
+     * @param savedInstanceState The saved instance state.
+     */
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        metricsText = findViewById(R.id.metricsText);
+        Button refreshButton = findViewById(R.id.refreshButton);
+        Button resetButton = findViewById(R.id.resetButton);
+
+        refreshButton.setOnClickListener(v -> showMetrics());
+        resetButton.setOnClickListener(v -> {
+            Metrics.reset();
+            showMetrics();
+        });
+    }
+
+    /**
+     * Called when the activity comes to the foreground; shows the current values.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    /**
+     * Prints the metrics into the text view.
+     */
+    private void showMetrics() {
+        StringWriter output = new StringWriter();
+        PrintWriter writer = new PrintWriter(output);
+        Metrics.dump(writer, "");
+        writer.flush();
+        metricsText.setText(output.toString());
+    }
+}
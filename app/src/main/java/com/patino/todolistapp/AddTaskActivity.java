@@ -5,18 +5,25 @@ import android.app.TimePickerDialog;
 import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import java.util.Calendar;
 
 public class AddTaskActivity extends AppCompatActivity {
-    private EditText editTextTitle, editTextDescription;
+    // Spinner entries; entry i + 1 repeats with frequency i (TaskSeries.DAILY, WEEKLY, MONTHLY)
+    private static final String[] REPEAT_OPTIONS = {"Does not repeat", "Every day", "Every week", "Every month"};
+
+    private EditText editTextTitle, editTextDescription, editTextRepeatInterval, editTextRepeatCount;
+    private Spinner spinnerRepeat;
     private TextView textViewDateTime;
     private Button buttonSave, buttonPickDateTime;
-    private DatabaseHelper databaseHelper;
+    private TaskRepository taskRepository;
     private Calendar selectedDateTime = Calendar.getInstance();
 
     /**
@@ -36,7 +43,24 @@ public class AddTaskActivity extends AppCompatActivity {
         textViewDateTime = findViewById(R.id.textViewDateTime);
         buttonPickDateTime = findViewById(R.id.buttonPickDateTime);
         buttonSave = findViewById(R.id.buttonSave);
-        databaseHelper = new DatabaseHelper(this);
+        spinnerRepeat = findViewById(R.id.spinnerRepeat);
+        editTextRepeatInterval = findViewById(R.id.editTextRepeatInterval);
+        editTextRepeatCount = findViewById(R.id.editTextRepeatCount);
+        taskRepository = TaskRepository.getInstance(this);
+
+        // The interval and count only apply to repeating tasks
+        spinnerRepeat.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_spinner_dropdown_item, REPEAT_OPTIONS));
+        spinnerRepeat.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                editTextRepeatInterval.setEnabled(position > 0);
+                editTextRepeatCount.setEnabled(position > 0);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
 
         buttonPickDateTime.setOnClickListener(v -> pickDateTime());
         buttonSave.setOnClickListener(v -> saveTask());
@@ -65,8 +89,11 @@ public class AddTaskActivity extends AppCompatActivity {
      * Retrieves the title and description from the `editTextTitle` and `editTextDescription` fields, respectively.
      * If either field is empty, displays an error message and returns without saving the task.
      * Otherwise, adds the task to the database with the selected date and time, and displays a success message.
+     * A repeating task is stored once, as a series starting at the selected date and time; an empty count makes it
+     * repeat forever, while a typed count has to be at least 1.
      *
-     * After saving the task, sets the activity result to `RESULT_OK` and finishes the activity.
+     * After saving the task, sets the activity result to `RESULT_OK` and finishes the activity. If the write fails,
+     * shows an error message and enables the save button again, keeping what the user typed.
      */
     private void saveTask() {
         String title = editTextTitle.getText().toString().trim();
@@ -78,9 +105,53 @@ public class AddTaskActivity extends AppCompatActivity {
             return;
         }
 
-        databaseHelper.addTask(title, description, timestamp);
-        Toast.makeText(this, "Task saved", Toast.LENGTH_SHORT).show();
-        setResult(RESULT_OK);
-        finish();
+        int repeat = spinnerRepeat.getSelectedItemPosition();
+        int interval = parseNumber(editTextRepeatInterval, 1);
+        int count = TaskSeries.parseCount(editTextRepeatCount.getText().toString());
+        if (repeat > 0 && (interval < 1 || count < 0)) {
+            Toast.makeText(this, "Please enter how often and how many times the task repeats", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        buttonSave.setEnabled(false); // Prevent double submission while the write is pending
+        TaskRepository.Callback<Void> onSaved = new TaskRepository.Callback<Void>() {
+            @Override
+            public void onComplete(Void result) {
+                Toast.makeText(AddTaskActivity.this, "Task saved", Toast.LENGTH_SHORT).show();
+                setResult(RESULT_OK);
+                finish();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // Keep the form so the user can try again
+                Toast.makeText(AddTaskActivity.this, "Could not save the task", Toast.LENGTH_SHORT).show();
+                buttonSave.setEnabled(true);
+            }
+        };
+        if (repeat == 0) {
+            taskRepository.addTask(title, description, timestamp, onSaved);
+        } else {
+            taskRepository.addSeries(title, description, timestamp, repeat - 1, interval, count, onSaved);
+        }
+    }
+
+    /**
+     * Reads a whole number from a text field.
+     *
+     * @param field The field to read.
+     * @param emptyValue The value of an empty field.
+     * @return The number, emptyValue if the field is empty, or -1 if it does not hold a valid number.
+     */
+    private static int parseNumber(EditText field, int emptyValue) {
+        String text = field.getText().toString().trim();
+        if (text.isEmpty()) {
+            return emptyValue;
+        }
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 }
@@ -0,0 +1,104 @@
+package com.patino.todolistapp;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+public class ArchiveActivity extends AppCompatActivity {
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 15; // Rows left below the viewport before the next page is requested
+    private TaskAdapter adapter;
+    private TaskRepository taskRepository;
+    private TaskRow.Factory rowFactory;
+    private LinearLayout noTasksContainer;
+
+    // Keyset paging state
+    private ArchivedTask lastArchivedTask; // Last task of the loaded pages, or null before the first page
+    private boolean hasMorePages = true;
+    private Future<?> pendingPageLoad;
+
+    /**
+     * Called when the activity is created.
+     *
+     * Sets up the list of archived tasks and loads its first page. The archive is only read when this screen is
+     * opened, and further pages are loaded as the user scrolls. Archived tasks cannot be edited, so a long-click
+     * does nothing.
+     *
+     * @param savedInstanceState The saved instance state.
+     */
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_archive);
+
+        // Initialize views
+        noTasksContainer = findViewById(R.id.noTasksContainer);
+        RecyclerView recyclerView = findViewById(R.id.recyclerView);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+
+        rowFactory = new TaskRow.Factory(this);
+        adapter = new TaskAdapter(task -> {
+        });
+        recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        taskRepository = TaskRepository.getInstance(this);
+        loadNextPage();
+    }
+
+    /**
+     * Called when the activity is destroyed; cancels the page load if it is still running.
+     */
+    @Override
+    protected void onDestroy() {
+        if (pendingPageLoad != null) {
+            pendingPageLoad.cancel(true);
+        }
+        super.onDestroy();
+    }
+
+    /**
+     * Requests the page of archived tasks that follows the last loaded one, unless a load is already running or
+     * the end of the archive has been reached.
+     */
+    private void loadNextPage() {
+        if (pendingPageLoad != null || !hasMorePages) {
+            return;
+        }
+        pendingPageLoad = taskRepository.getArchivePage(lastArchivedTask, PAGE_SIZE, archivedTasks -> {
+            if (isDestroyed()) {
+                return;
+            }
+            pendingPageLoad = null;
+            hasMorePages = archivedTasks.size() == PAGE_SIZE;
+            if (!archivedTasks.isEmpty()) {
+                lastArchivedTask = archivedTasks.get(archivedTasks.size() - 1);
+            }
+            List<TaskRow> rows = rowFactory.createArchivedRows(archivedTasks);
+            adapter.appendRows(rows, this::updateEmptyState);
+        });
+    }
+
+    /**
+     * Shows the noTasksContainer when the archive is empty and hides it otherwise.
+     */
+    private void updateEmptyState() {
+        noTasksContainer.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+    }
+}
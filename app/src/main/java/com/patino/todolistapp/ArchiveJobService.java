@@ -0,0 +1,79 @@
+package com.patino.todolistapp;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+public class ArchiveJobService extends JobService {
+    private static final String TAG = "ArchiveJobService";
+    private static final int JOB_ID = 1;
+    private static final long INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Schedules the daily compaction of the task list, unless it is already scheduled.
+     *
+     * The job waits until the device is idle and the battery is not low, and survives reboots.
+     *
+     * @param context Any context.
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, ArchiveJobService.class))
+                .setPeriodic(INTERVAL_MILLIS)
+                .setRequiresDeviceIdle(true)
+                .setRequiresBatteryNotLow(true)
+                .setPersisted(true)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    /**
+     * Called when the job runs.
+     *
+     * Moves the tasks whose time has long passed to the archive and releases free database pages, on the
+     * repository's background write thread; the job is finished once the repository reports back.
+     *
+     * @param params The parameters of the job.
+     * @return True, as the work continues on another thread.
+     */
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        long start = SystemClock.elapsedRealtime();
+        TaskRepository.getInstance(this).compactTasks(new TaskRepository.Callback<Integer>() {
+            @Override
+            public void onComplete(Integer archived) {
+                Log.d(TAG, "Archived " + archived + " tasks in " + (SystemClock.elapsedRealtime() - start) + " ms");
+                jobFinished(params, false);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                jobFinished(params, true);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Called when the job must stop before it finished, for instance because the device is no longer idle.
+     *
+     * Each batch is committed on its own, so the write is left to finish; the next run picks up whatever is left.
+     *
+     * @param params The parameters of the job.
+     * @return False; the next periodic run is soon enough.
+     */
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return false;
+    }
+}
@@ -3,16 +3,20 @@ package com.patino.todolistapp;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
 import android.util.Log;
 
-import java.util.List;
-
 public class BootReceiver extends BroadcastReceiver {
+    private static final String TAG = "BootReceiver";
+
     /**
      * Called when the device boots up and the ACTION_BOOT_COMPLETED intent is received.
-     * Reschedules alarms for tasks that are stored in the database and have a timestamp in the future.
-     * This method iterates through all tasks in the database, checks if each task's timestamp is in the future,
-     * and schedules a reminder for that task using the MainActivity.scheduleTaskReminder method.
+     * Alarms do not survive a reboot, so this clears the reminder ledger and re-arms the reminder for the next task
+     * that is stored in the database and has a reminder time in the future.
+     *
+     * The work runs on the repository's background write thread and the receiver is kept alive with goAsync() until
+     * it finishes, so a large task table cannot block the main thread or hit the broadcast timeout. Only the next due
+     * tasks are read, through the timestamp index, and the time taken is logged.
      *
      * @param context The Context in which the receiver is running.
      * @param intent The Intent being received.
@@ -20,17 +24,21 @@ public class BootReceiver extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
         if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
-            Log.d("BootReceiver", "Device booted, rescheduling alarms");
-            DatabaseHelper databaseHelper = new DatabaseHelper(context);
-            List<Task> tasks = databaseHelper.getAllTasks();
+            Log.d(TAG, "Device booted, rescheduling alarms");
+            long start = SystemClock.elapsedRealtime();
+            PendingResult pendingResult = goAsync();
+            TaskRepository.getInstance(context).resetReminders(new TaskRepository.Callback<Void>() {
+                @Override
+                public void onComplete(Void result) {
+                    Log.d(TAG, "Alarms rescheduled in " + (SystemClock.elapsedRealtime() - start) + " ms");
+                    pendingResult.finish();
+                }
 
-            for (Task task : tasks) {
-                long taskTime = task.getTimestamp();
-                String taskTitle = task.getTitle();
-                if (taskTime > System.currentTimeMillis()) { // Only schedule alarms for future tasks
-                    MainActivity.scheduleTaskReminder(context, taskTime, taskTitle);
+                @Override
+                public void onError(Exception e) {
+                    pendingResult.finish();
                 }
-            }
+            });
         }
     }
-}
\ No newline at end of file
+}
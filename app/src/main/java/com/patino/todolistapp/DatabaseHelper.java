@@ -2,30 +2,333 @@ package com.patino.todolistapp;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.CharArrayBuffer;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "tasks.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 6;
     private static final String TABLE_TASKS = "tasks";
     private static final String COLUMN_ID = "id";
     private static final String COLUMN_TITLE = "title";
     private static final String COLUMN_DESCRIPTION = "description";
     private static final String COLUMN_TIMESTAMP = "timestamp";
+    private static final String[] TASK_PROJECTION = {COLUMN_ID, COLUMN_TITLE, COLUMN_DESCRIPTION, COLUMN_TIMESTAMP};
+    static final String INDEX_TASKS_TIMESTAMP = "idx_tasks_timestamp";
+    private static final String TABLE_REMINDER_LEDGER = "reminder_ledger";
+    private static final String COLUMN_TASK_ID = "task_id";
+    private static final String COLUMN_REMINDER_TIME = "reminder_time";
+    private static final String TABLE_TASKS_FTS = "tasks_fts";
+    private static final String TABLE_SERIES = "task_series";
+    private static final String COLUMN_START_TIMESTAMP = "start_timestamp";
+    private static final String COLUMN_FREQUENCY = "frequency";
+    private static final String COLUMN_INTERVAL = "repeat_interval";
+    private static final String COLUMN_UNTIL_TIMESTAMP = "until_timestamp";
+    private static final String COLUMN_COUNT = "repeat_count";
+    private static final String COLUMN_END_TIMESTAMP = "end_timestamp"; // Time of the last occurrence, NULL if endless
+    private static final String TABLE_ARCHIVE = "task_archive";
+    private static final String COLUMN_COMPLETED = "completed"; // 1 if the user marked the task done, 0 if it expired
+    private static final String COLUMN_ARCHIVED_TIMESTAMP = "archived_timestamp";
+    static final String INDEX_ARCHIVE_TIMESTAMP = "idx_task_archive_timestamp";
+    static final int AUTO_VACUUM_INCREMENTAL = 2; // Value of PRAGMA auto_vacuum
+
+    // Ordered queries served by INDEX_TASKS_TIMESTAMP (the index also carries the row id, which breaks timestamp ties)
+    private static final String SELECT_TASKS = "SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION + ", "
+            + COLUMN_TIMESTAMP + " FROM " + TABLE_TASKS;
+    private static final String ORDER_BY_TIMESTAMP = " ORDER BY " + COLUMN_TIMESTAMP + " ASC, " + COLUMN_ID + " ASC";
+    // List rows only show the start of the description, so list queries read a bounded prefix of it
+    static final int DESCRIPTION_PREVIEW_LENGTH = 200;
+    private static final String SELECT_TASK_PREVIEWS = "SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", substr("
+            + COLUMN_DESCRIPTION + ", 1, " + DESCRIPTION_PREVIEW_LENGTH + "), " + COLUMN_TIMESTAMP + " FROM " + TABLE_TASKS;
+    static final String QUERY_FIRST_PAGE = SELECT_TASK_PREVIEWS + ORDER_BY_TIMESTAMP + " LIMIT ?";
+    // Rows strictly after a (timestamp, id) keyset, bound as timestamp, timestamp, id
+    private static final String WHERE_AFTER_KEYSET = " WHERE " + COLUMN_TIMESTAMP + " >= ? AND ("
+            + COLUMN_TIMESTAMP + " > ? OR " + COLUMN_ID + " > ?)";
+    static final String QUERY_NEXT_PAGE = SELECT_TASK_PREVIEWS + WHERE_AFTER_KEYSET + ORDER_BY_TIMESTAMP + " LIMIT ?";
+    // Export walks the whole table in keyset pages of full rows, so no query has to skip rows it already returned
+    static final String QUERY_EXPORT_FIRST_PAGE = SELECT_TASKS + ORDER_BY_TIMESTAMP + " LIMIT ?";
+    static final String QUERY_EXPORT_NEXT_PAGE = SELECT_TASKS + WHERE_AFTER_KEYSET + ORDER_BY_TIMESTAMP + " LIMIT ?";
+    // Snapshots hold IDs, titles and timestamps only
+    private static final String SELECT_SNAPSHOT = "SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", " + COLUMN_TIMESTAMP
+            + " FROM " + TABLE_TASKS;
+    static final String QUERY_SNAPSHOT = SELECT_SNAPSHOT + ORDER_BY_TIMESTAMP;
+    static final String QUERY_TASKS_BETWEEN = SELECT_SNAPSHOT + " WHERE " + COLUMN_TIMESTAMP + " >= ? AND "
+            + COLUMN_TIMESTAMP + " < ?" + ORDER_BY_TIMESTAMP;
+    // Full-text search over title and description, best matches first. offsets() lists four space-separated integers
+    // per match, so the number of matches is the number of integers divided by four
+    static final String QUERY_SEARCH_TASKS = "SELECT t." + COLUMN_ID + ", t." + COLUMN_TITLE + ", substr(t." + COLUMN_DESCRIPTION
+            + ", 1, " + DESCRIPTION_PREVIEW_LENGTH + "), t." + COLUMN_TIMESTAMP + " FROM (SELECT docid, offsets(" + TABLE_TASKS_FTS
+            + ") AS match_offsets FROM " + TABLE_TASKS_FTS + " WHERE " + TABLE_TASKS_FTS + " MATCH ?) m JOIN " + TABLE_TASKS
+            + " t ON t." + COLUMN_ID + " = m.docid"
+            + " ORDER BY (length(m.match_offsets) - length(replace(m.match_offsets, ' ', '')) + 1) / 4 DESC, t."
+            + COLUMN_TIMESTAMP + " ASC LIMIT ? OFFSET ?";
+
+    static final String QUERY_TASK_BY_ID = SELECT_TASKS + " WHERE " + COLUMN_ID + " = ?";
+
+    // Statements compiled once per batch and re-bound for every row
+    private static final String INSERT_TASK = "INSERT INTO " + TABLE_TASKS + "(" + COLUMN_TITLE + ", "
+            + COLUMN_DESCRIPTION + ", " + COLUMN_TIMESTAMP + ") VALUES(?, ?, ?)";
+    private static final String UPDATE_TASK = "UPDATE " + TABLE_TASKS + " SET " + COLUMN_TITLE + " = ?, "
+            + COLUMN_DESCRIPTION + " = ?, " + COLUMN_TIMESTAMP + " = ? WHERE " + COLUMN_ID + " = ?";
+    private static final String DELETE_TASK = "DELETE FROM " + TABLE_TASKS + " WHERE " + COLUMN_ID + " = ?";
+    static final String QUERY_TASKS_AFTER = SELECT_TASKS + " WHERE " + COLUMN_TIMESTAMP + " > ?" + ORDER_BY_TIMESTAMP;
+    static final String QUERY_NEXT_TASK_AFTER = QUERY_TASKS_AFTER + " LIMIT 1";
+    static final String QUERY_NEXT_DUE_TASKS = SELECT_SNAPSHOT + " WHERE " + COLUMN_TIMESTAMP + " = (SELECT MIN("
+            + COLUMN_TIMESTAMP + ") FROM " + TABLE_TASKS + " WHERE " + COLUMN_TIMESTAMP + " > ?)" + ORDER_BY_TIMESTAMP;
+    // Moving a task to the archive copies its row and deletes it, keeping its ID, which AUTOINCREMENT never reuses
+    private static final String ARCHIVE_TASK = "INSERT INTO " + TABLE_ARCHIVE + "(" + COLUMN_ID + ", " + COLUMN_TITLE + ", "
+            + COLUMN_DESCRIPTION + ", " + COLUMN_TIMESTAMP + ", " + COLUMN_COMPLETED + ", " + COLUMN_ARCHIVED_TIMESTAMP
+            + ") SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION + ", " + COLUMN_TIMESTAMP
+            + ", ?, ? FROM " + TABLE_TASKS + " WHERE " + COLUMN_ID + " = ?";
+    static final String QUERY_IDS_DUE_BEFORE = "SELECT " + COLUMN_ID + " FROM " + TABLE_TASKS + " WHERE "
+            + COLUMN_TIMESTAMP + " < ?" + ORDER_BY_TIMESTAMP + " LIMIT ?";
+    // The archive is browsed most recent first, in keyset pages served by INDEX_ARCHIVE_TIMESTAMP
+    private static final String SELECT_ARCHIVE_PREVIEWS = "SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", substr("
+            + COLUMN_DESCRIPTION + ", 1, " + DESCRIPTION_PREVIEW_LENGTH + "), " + COLUMN_TIMESTAMP + ", "
+            + COLUMN_COMPLETED + ", " + COLUMN_ARCHIVED_TIMESTAMP + " FROM " + TABLE_ARCHIVE;
+    private static final String ORDER_BY_TIMESTAMP_DESC = " ORDER BY " + COLUMN_TIMESTAMP + " DESC, " + COLUMN_ID + " DESC";
+    // Rows strictly before a (timestamp, id) keyset, bound as timestamp, timestamp, id
+    private static final String WHERE_BEFORE_KEYSET = " WHERE " + COLUMN_TIMESTAMP + " <= ? AND ("
+            + COLUMN_TIMESTAMP + " < ? OR " + COLUMN_ID + " < ?)";
+    // Export walks the archive like the tasks table, in keyset pages of full rows in (timestamp, id) order
+    private static final String SELECT_ARCHIVE = "SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION
+            + ", " + COLUMN_TIMESTAMP + ", " + COLUMN_COMPLETED + ", " + COLUMN_ARCHIVED_TIMESTAMP + " FROM " + TABLE_ARCHIVE;
+    static final String QUERY_EXPORT_ARCHIVE_FIRST_PAGE = SELECT_ARCHIVE + ORDER_BY_TIMESTAMP + " LIMIT ?";
+    static final String QUERY_EXPORT_ARCHIVE_NEXT_PAGE = SELECT_ARCHIVE + WHERE_AFTER_KEYSET + ORDER_BY_TIMESTAMP
+            + " LIMIT ?";
+    static final String QUERY_ARCHIVE_FIRST_PAGE = SELECT_ARCHIVE_PREVIEWS + ORDER_BY_TIMESTAMP_DESC + " LIMIT ?";
+    static final String QUERY_ARCHIVE_NEXT_PAGE = SELECT_ARCHIVE_PREVIEWS + WHERE_BEFORE_KEYSET + ORDER_BY_TIMESTAMP_DESC
+            + " LIMIT ?";
+    // Series that still have occurrences after a time; the stored end saves expanding a series just to know it ended
+    static final String QUERY_ACTIVE_SERIES = "SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION + ", "
+            + COLUMN_START_TIMESTAMP + ", " + COLUMN_FREQUENCY + ", " + COLUMN_INTERVAL + ", " + COLUMN_UNTIL_TIMESTAMP + ", "
+            + COLUMN_COUNT + " FROM " + TABLE_SERIES + " WHERE " + COLUMN_END_TIMESTAMP + " IS NULL OR "
+            + COLUMN_END_TIMESTAMP + " > ? ORDER BY " + COLUMN_ID;
+
+    // Latency of every public database operation, recorded while Metrics is enabled
+    private static final Metrics.Histogram ADD_TASK_LATENCY = Metrics.histogram("db.addTask");
+    private static final Metrics.Histogram GET_ALL_TASKS_LATENCY = Metrics.histogram("db.getAllTasks");
+    private static final Metrics.Histogram GET_TASK_SNAPSHOT_LATENCY = Metrics.histogram("db.getTaskSnapshot");
+    private static final Metrics.Histogram GET_TASK_LATENCY = Metrics.histogram("db.getTask");
+    private static final Metrics.Histogram GET_TASKS_PAGE_LATENCY = Metrics.histogram("db.getTasksPage");
+    private static final Metrics.Histogram GET_TASKS_BETWEEN_LATENCY = Metrics.histogram("db.getTasksBetween");
+    private static final Metrics.Histogram GET_TASKS_AFTER_LATENCY = Metrics.histogram("db.getTasksAfter");
+    private static final Metrics.Histogram GET_NEXT_TASK_AFTER_LATENCY = Metrics.histogram("db.getNextTaskAfter");
+    private static final Metrics.Histogram GET_NEXT_DUE_TASKS_LATENCY = Metrics.histogram("db.getNextDueTasks");
+    private static final Metrics.Histogram SEARCH_TASKS_LATENCY = Metrics.histogram("db.searchTasks");
+    private static final Metrics.Histogram DELETE_TASK_LATENCY = Metrics.histogram("db.deleteTask");
+    private static final Metrics.Histogram UPDATE_TASK_LATENCY = Metrics.histogram("db.updateTask");
+    private static final Metrics.Histogram ADD_TASKS_LATENCY = Metrics.histogram("db.addTasks");
+    private static final Metrics.Histogram UPDATE_TASKS_LATENCY = Metrics.histogram("db.updateTasks");
+    private static final Metrics.Histogram DELETE_TASKS_LATENCY = Metrics.histogram("db.deleteTasks");
+    private static final Metrics.Histogram APPLY_CHANGES_LATENCY = Metrics.histogram("db.applyChanges");
+    private static final Metrics.Histogram GET_REMINDER_LEDGER_LATENCY = Metrics.histogram("db.getReminderLedger");
+    private static final Metrics.Histogram UPDATE_REMINDER_LEDGER_LATENCY = Metrics.histogram("db.updateReminderLedger");
+    private static final Metrics.Histogram CLEAR_REMINDER_LEDGER_LATENCY = Metrics.histogram("db.clearReminderLedger");
+    private static final Metrics.Histogram ADD_SERIES_LATENCY = Metrics.histogram("db.addSeries");
+    private static final Metrics.Histogram GET_ACTIVE_SERIES_LATENCY = Metrics.histogram("db.getActiveSeries");
+    private static final Metrics.Histogram DELETE_SERIES_LATENCY = Metrics.histogram("db.deleteSeries");
+    private static final Metrics.Histogram EXPORT_PAGE_LATENCY = Metrics.histogram("db.exportPage");
+    private static final Metrics.Histogram IMPORT_BATCH_LATENCY = Metrics.histogram("db.importBatch");
+    private static final Metrics.Histogram ARCHIVE_BATCH_LATENCY = Metrics.histogram("db.archiveBatch");
+    private static final Metrics.Histogram COMPLETE_TASK_LATENCY = Metrics.histogram("db.completeTask");
+    private static final Metrics.Histogram GET_ARCHIVE_PAGE_LATENCY = Metrics.histogram("db.getArchivePage");
+    private static final Metrics.Histogram INCREMENTAL_VACUUM_LATENCY = Metrics.histogram("db.incrementalVacuum");
+    private static final Metrics.Counter ROWS_READ = Metrics.counter("db.rowsRead");
+
+    /**
+     * Receives the rows of a table walk, one at a time.
+     */
+    public interface TaskVisitor {
+        void visit(int id, String title, String description, long timestamp) throws IOException;
+    }
+
+    /**
+     * Receives the rows of an archive walk, one at a time.
+     */
+    public interface ArchivedTaskVisitor {
+        void visit(int id, String title, String description, long timestamp, boolean completed,
+                   long archivedTimestamp) throws IOException;
+    }
+
+    /**
+     * Supplies the rows of an import, one at a time.
+     */
+    public interface TaskSource {
+        // Returns the next task, whose ID is ignored, or null once there are no more
+        @Nullable
+        Task next() throws IOException;
+
+        // Whether the task returned last goes to the archive rather than the tasks table
+        default boolean isArchived() {
+            return false;
+        }
+
+        // Whether the archived task returned last was marked done, rather than letting its time pass
+        default boolean isCompleted() {
+            return false;
+        }
+
+        default long getArchivedTimestamp() {
+            return 0;
+        }
+
+        // The recurring task the row returned last stands for, whose ID is ignored, or null for a single task
+        @Nullable
+        default TaskSeries getSeries() {
+            return null;
+        }
+    }
+
+    // Reads the current row of a table walk
+    private interface RowVisitor {
+        void visit(Cursor cursor) throws IOException;
+    }
+
+    /**
+     * Notified after each batch of an import is committed.
+     */
+    public interface ImportListener {
+        void onBatchCommitted(int rowsImported);
+    }
+
+    /**
+     * A single, incremental schema change.
+     *
+     * Migrations must preserve existing rows: they alter, add or backfill, but never drop user data.
+     */
+    private interface Migration {
+        void migrate(SQLiteDatabase db);
+    }
+
+    /**
+     * Schema migrations, in order. MIGRATIONS[i] upgrades the schema from version i + 1 to version i + 2,
+     * so DATABASE_VERSION must always equal MIGRATIONS.length + 1.
+     */
+    private static final Migration[] MIGRATIONS = {
+            // 1 -> 2: index the timestamp used by every ordered list query and by the alarm range queries
+            db -> db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TASKS_TIMESTAMP + " ON "
+                    + TABLE_TASKS + "(" + COLUMN_TIMESTAMP + ")"),
+            // 2 -> 3: ledger of the reminder alarms currently registered with AlarmManager, keyed by task id
+            db -> db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_REMINDER_LEDGER + "("
+                    + COLUMN_TASK_ID + " INTEGER PRIMARY KEY, "
+                    + COLUMN_REMINDER_TIME + " INTEGER NOT NULL)"),
+            // 3 -> 4: full-text index over title and description, kept in sync with the tasks table by triggers
+            db -> {
+                db.execSQL("CREATE VIRTUAL TABLE " + TABLE_TASKS_FTS + " USING fts4(content=\"" + TABLE_TASKS + "\", "
+                        + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION + ", tokenize=unicode61)");
+                db.execSQL("CREATE TRIGGER tasks_fts_before_update BEFORE UPDATE ON " + TABLE_TASKS + " BEGIN "
+                        + "DELETE FROM " + TABLE_TASKS_FTS + " WHERE docid = old.rowid; END");
+                db.execSQL("CREATE TRIGGER tasks_fts_before_delete BEFORE DELETE ON " + TABLE_TASKS + " BEGIN "
+                        + "DELETE FROM " + TABLE_TASKS_FTS + " WHERE docid = old.rowid; END");
+                db.execSQL("CREATE TRIGGER tasks_fts_after_update AFTER UPDATE ON " + TABLE_TASKS + " BEGIN "
+                        + "INSERT INTO " + TABLE_TASKS_FTS + "(docid, " + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION + ") "
+                        + "VALUES(new.rowid, new." + COLUMN_TITLE + ", new." + COLUMN_DESCRIPTION + "); END");
+                db.execSQL("CREATE TRIGGER tasks_fts_after_insert AFTER INSERT ON " + TABLE_TASKS + " BEGIN "
+                        + "INSERT INTO " + TABLE_TASKS_FTS + "(docid, " + COLUMN_TITLE + ", " + COLUMN_DESCRIPTION + ") "
+                        + "VALUES(new.rowid, new." + COLUMN_TITLE + ", new." + COLUMN_DESCRIPTION + "); END");
+                // Index the tasks that already exist
+                db.execSQL("INSERT INTO " + TABLE_TASKS_FTS + "(" + TABLE_TASKS_FTS + ") VALUES('rebuild')");
+            },
+            // 4 -> 5: recurring tasks, stored once as a rule and expanded into occurrences only when read
+            db -> db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SERIES + "("
+                    + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + COLUMN_TITLE + " TEXT, "
+                    + COLUMN_DESCRIPTION + " TEXT, "
+                    + COLUMN_START_TIMESTAMP + " INTEGER NOT NULL, "
+                    + COLUMN_FREQUENCY + " INTEGER NOT NULL, "
+                    + COLUMN_INTERVAL + " INTEGER NOT NULL, "
+                    + COLUMN_UNTIL_TIMESTAMP + " INTEGER, "
+                    + COLUMN_COUNT + " INTEGER NOT NULL, "
+                    + COLUMN_END_TIMESTAMP + " INTEGER)"),
+            // 5 -> 6: archive of done and expired tasks, so the tasks table only holds the ones still to do
+            db -> {
+                db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_ARCHIVE + "("
+                        + COLUMN_ID + " INTEGER PRIMARY KEY, "
+                        + COLUMN_TITLE + " TEXT, "
+                        + COLUMN_DESCRIPTION + " TEXT, "
+                        + COLUMN_TIMESTAMP + " INTEGER, "
+                        + COLUMN_COMPLETED + " INTEGER NOT NULL, "
+                        + COLUMN_ARCHIVED_TIMESTAMP + " INTEGER NOT NULL)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_ARCHIVE_TIMESTAMP + " ON "
+                        + TABLE_ARCHIVE + "(" + COLUMN_TIMESTAMP + ")");
+            },
+    };
+
+    private static DatabaseHelper instance;
 
    // Class Constructor
-    public DatabaseHelper(Context context) {
+    DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Write-ahead logging lets readers run concurrently with a writer instead of queueing behind it
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Returns the process-wide DatabaseHelper instance, creating it on first use.
+     *
+     * The helper keeps its connection open for the lifetime of the process, so callers must not close
+     * the database they get from it. Reusing the connection avoids reopening the file and lets SQLite
+     * keep its prepared statement cache between operations.
+     *
+     * @param context Any context; only the application context is retained.
+     * @return The shared DatabaseHelper instance.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Closes and forgets the process-wide instance so the next getInstance() call opens a fresh one.
+     */
+    @VisibleForTesting
+    static synchronized void resetInstance() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Called when the connection is configured, before the tables are created or upgraded.
+     *
+     * A new database is switched to incremental vacuuming here, before any table exists, so incrementalVacuum()
+     * never has to rebuild it. Enabling write-ahead logging has already written the file header by now, and the
+     * mode of an existing file only changes with a VACUUM, which costs nothing while the file is still empty.
+     *
+     * @param db The SQLiteDatabase instance being opened.
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        if (db.getVersion() == 0) {
+            db.execSQL("PRAGMA auto_vacuum = " + AUTO_VACUUM_INCREMENTAL);
+            db.execSQL("VACUUM");
+        }
     }
 
     /**
      * Called when the database is created for the first time.
      *
-     * Creates the tasks table with the necessary columns.
+     * Creates the version 1 tasks table and then applies every migration, so fresh installs and upgraded
+     * installs always end up with exactly the same schema.
      *
      * @param db The SQLiteDatabase instance to create the table in.
      */
@@ -37,12 +340,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + COLUMN_DESCRIPTION + " TEXT, "
                 + COLUMN_TIMESTAMP + " INTEGER)";
         db.execSQL(CREATE_TABLE);
+        onUpgrade(db, 1, DATABASE_VERSION);
     }
 
     /**
      * Called when the database needs to be upgraded to a new version.
      *
-     * Drops the existing tasks table and recreates it using the onCreate method.
+     * Applies each migration between the old and the new version in order. SQLiteOpenHelper runs this inside
+     * a transaction, so a failed migration leaves the database at its old version with all data intact.
      *
      * @param db The SQLiteDatabase instance to upgrade.
      * @param oldVersion The old version of the database.
@@ -50,8 +355,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TASKS);
-        onCreate(db);
+        for (int version = oldVersion; version < newVersion; version++) {
+            MIGRATIONS[version - 1].migrate(db);
+        }
     }
 
     /**
@@ -62,15 +368,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param title The title of the task to add.
      * @param description The description of the task to add.
      * @param timestamp The timestamp of the task to add.
+     * @return The ID of the new task.
      */
-    public void addTask(String title, String description, long timestamp) {
+    public int addTask(String title, String description, long timestamp) {
+        long start = Metrics.startTimer();
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_TITLE, title);
         values.put(COLUMN_DESCRIPTION, description);
         values.put(COLUMN_TIMESTAMP, timestamp);
-        db.insert(TABLE_TASKS, null, values);
-        db.close();
+        long id = db.insert(TABLE_TASKS, null, values);
+        ADD_TASK_LATENCY.stopTimer(start);
+        return (int) id;
     }
 
     /**
@@ -81,11 +390,188 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @return A list of all tasks in the database.
      */
     public List<Task> getAllTasks() {
-        List<Task> taskList = new ArrayList<>();
+        long start = Metrics.startTimer();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_TASKS, new String[]{COLUMN_ID, COLUMN_TITLE, COLUMN_DESCRIPTION, COLUMN_TIMESTAMP},
+        Cursor cursor = db.query(TABLE_TASKS, TASK_PROJECTION,
                 null, null, null, null, COLUMN_TIMESTAMP + " ASC");
+        return readTasks(cursor, GET_ALL_TASKS_LATENCY, start);
+    }
+
+    /**
+     * Retrieves every task as a column-oriented snapshot, ordered by timestamp and ID.
+     *
+     * Only IDs, titles and timestamps are read, and they are copied straight from the cursor into the snapshot
+     * columns, so no Task object is created per row.
+     *
+     * @return The snapshot of all tasks.
+     */
+    public TaskSnapshot getTaskSnapshot() {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_SNAPSHOT, null);
+        return readSnapshot(cursor, GET_TASK_SNAPSHOT_LATENCY, start);
+    }
 
+    /**
+     * Retrieves a single task, with its full description.
+     *
+     * @param id The ID of the task.
+     * @return The task, or null if it does not exist (anymore).
+     */
+    @Nullable
+    public Task getTask(int id) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_TASK_BY_ID, new String[]{String.valueOf(id)});
+        List<Task> tasks = readTasks(cursor, GET_TASK_LATENCY, start);
+        return tasks.isEmpty() ? null : tasks.get(0);
+    }
+
+    /**
+     * Retrieves one page of tasks ordered by timestamp, using keyset pagination.
+     *
+     * Rows are ordered by (timestamp, id) so the order is stable even when several tasks share a timestamp.
+     * Instead of an OFFSET, the next page starts strictly after the last task of the previous page, so the
+     * cost of fetching a page does not depend on how far into the list it is.
+     *
+     * Only the first DESCRIPTION_PREVIEW_LENGTH characters of each description are read, which keeps long notes out
+     * of the cursor window; use getTask() to load the full task.
+     *
+     * @param after The last task of the previous page, or null to fetch the first page.
+     * @param limit The maximum number of tasks to return.
+     * @return Up to limit tasks following the given task.
+     */
+    public List<Task> getTasksPage(@Nullable Task after, int limit) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor;
+        if (after == null) {
+            cursor = db.rawQuery(QUERY_FIRST_PAGE, new String[]{String.valueOf(limit)});
+        } else {
+            String timestamp = String.valueOf(after.getTimestamp());
+            cursor = db.rawQuery(QUERY_NEXT_PAGE,
+                    new String[]{timestamp, timestamp, String.valueOf(after.getId()), String.valueOf(limit)});
+        }
+        return readTasks(cursor, GET_TASKS_PAGE_LATENCY, start);
+    }
+
+    /**
+     * Retrieves the tasks whose timestamp falls within a time range, ordered by timestamp.
+     *
+     * @param startInclusive The start of the range, inclusive.
+     * @param endExclusive The end of the range, exclusive.
+     * @return A snapshot of the tasks in the range.
+     */
+    public TaskSnapshot getTasksBetween(long startInclusive, long endExclusive) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_TASKS_BETWEEN,
+                new String[]{String.valueOf(startInclusive), String.valueOf(endExclusive)});
+        return readSnapshot(cursor, GET_TASKS_BETWEEN_LATENCY, start);
+    }
+
+    /**
+     * Retrieves the tasks whose timestamp is strictly after the given time, ordered by timestamp.
+     *
+     * @param timestamp The exclusive lower bound.
+     * @return The tasks after the given time.
+     */
+    public List<Task> getTasksAfter(long timestamp) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_TASKS_AFTER, new String[]{String.valueOf(timestamp)});
+        return readTasks(cursor, GET_TASKS_AFTER_LATENCY, start);
+    }
+
+    /**
+     * Retrieves the earliest task whose timestamp is strictly after the given time.
+     *
+     * @param timestamp The exclusive lower bound.
+     * @return The next task, or null if there is none.
+     */
+    @Nullable
+    public Task getNextTaskAfter(long timestamp) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_NEXT_TASK_AFTER, new String[]{String.valueOf(timestamp)});
+        List<Task> tasks = readTasks(cursor, GET_NEXT_TASK_AFTER_LATENCY, start);
+        return tasks.isEmpty() ? null : tasks.get(0);
+    }
+
+    /**
+     * Retrieves every task that shares the earliest timestamp strictly after the given time.
+     *
+     * @param timestamp The exclusive lower bound.
+     * @return A snapshot of the next due tasks, ordered by id, which is empty if there are none.
+     */
+    public TaskSnapshot getNextDueTasks(long timestamp) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_NEXT_DUE_TASKS, new String[]{String.valueOf(timestamp)});
+        return readSnapshot(cursor, GET_NEXT_DUE_TASKS_LATENCY, start);
+    }
+
+    /**
+     * Searches task titles and descriptions for words starting with the words of a query.
+     *
+     * Uses the full-text index, so the cost depends on the number of matches rather than the size of the table.
+     * Results are ranked by how many times the query terms occur, then by timestamp, and returned one page at a time.
+     * Like getTasksPage(), only a preview of each description is read.
+     *
+     * @param query The text typed by the user; every word must match the start of a word in the task.
+     * @param limit The maximum number of tasks to return.
+     * @param offset The number of ranked results to skip.
+     * @param cancellationSignal Signal used to abort the query when the user keeps typing, or null.
+     * @return Up to limit matching tasks, or an empty list if the query has no searchable words.
+     */
+    public List<Task> searchTasks(String query, int limit, int offset, @Nullable CancellationSignal cancellationSignal) {
+        long start = Metrics.startTimer();
+        String matchQuery = toPrefixMatchQuery(query);
+        if (matchQuery == null) {
+            return new ArrayList<>();
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_SEARCH_TASKS,
+                new String[]{matchQuery, String.valueOf(limit), String.valueOf(offset)}, cancellationSignal);
+        return readTasks(cursor, SEARCH_TASKS_LATENCY, start);
+    }
+
+    /**
+     * Turns free text into an FTS prefix query, for example "buy mil" into "buy* mil*".
+     *
+     * Anything other than letters and digits is treated as a separator, and words are lowercased so "OR", "AND" and
+     * "NOT" are not read as operators; user input can never be parsed as FTS query syntax.
+     *
+     * @param query The text typed by the user.
+     * @return The MATCH expression, or null if the text contains no words.
+     */
+    @Nullable
+    static String toPrefixMatchQuery(String query) {
+        StringBuilder matchQuery = new StringBuilder();
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                if (matchQuery.length() > 0) {
+                    matchQuery.append(' ');
+                }
+                matchQuery.append(word).append('*');
+            }
+        }
+        return matchQuery.length() == 0 ? null : matchQuery.toString();
+    }
+
+    /**
+     * Reads every row of a cursor over TASK_PROJECTION into Task objects and closes the cursor.
+     *
+     * SQLite runs most of a query while the first rows are read, so the latency of the calling operation is recorded
+     * here, once the cursor is exhausted.
+     *
+     * @param cursor The cursor to read.
+     * @param latency The histogram of the calling operation.
+     * @param start The start time returned by Metrics.startTimer().
+     * @return The tasks in cursor order.
+     */
+    private List<Task> readTasks(Cursor cursor, Metrics.Histogram latency, long start) {
+        List<Task> taskList = new ArrayList<>();
         if (cursor.moveToFirst()) {
             do {
                 Task task = new Task(
@@ -98,9 +584,35 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             } while (cursor.moveToNext());
         }
         cursor.close();
-        db.close();
+        ROWS_READ.add(taskList.size());
+        latency.stopTimer(start);
         return taskList;
     }
+
+    /**
+     * Reads every row of a cursor over (id, title, timestamp) into a TaskSnapshot and closes the cursor.
+     *
+     * Titles are copied through a reused buffer, so reading a row allocates nothing.
+     *
+     * @param cursor The cursor to read, ordered by timestamp and ID.
+     * @param latency The histogram of the calling operation.
+     * @param start The start time returned by Metrics.startTimer().
+     * @return The snapshot.
+     */
+    private TaskSnapshot readSnapshot(Cursor cursor, Metrics.Histogram latency, long start) {
+        TaskSnapshot.Builder builder = new TaskSnapshot.Builder(cursor.getCount());
+        CharArrayBuffer title = new CharArrayBuffer(64);
+        while (cursor.moveToNext()) {
+            cursor.copyStringToBuffer(1, title);
+            builder.add(cursor.getInt(0), cursor.getLong(2), cursor.isNull(1) ? null : title.data, title.sizeCopied);
+        }
+        cursor.close();
+        TaskSnapshot snapshot = builder.build();
+        ROWS_READ.add(snapshot.size());
+        latency.stopTimer(start);
+        return snapshot;
+    }
+
     /**
      * Deletes a task from the database by its ID.
      *
@@ -109,9 +621,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param id The ID of the task to delete.
      */
     public void deleteTask(int id) {
+        long start = Metrics.startTimer();
         SQLiteDatabase db = this.getWritableDatabase();
         db.delete(TABLE_TASKS, COLUMN_ID + "=?", new String[]{String.valueOf(id)});
-        db.close();
+        DELETE_TASK_LATENCY.stopTimer(start);
     }
 
     /**
@@ -125,14 +638,549 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param timestamp The new timestamp of the task.
      */
     public void updateTask(int id, String title, String description, long timestamp) {
+        long start = Metrics.startTimer();
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_TITLE, title);
         values.put(COLUMN_DESCRIPTION, description);
         values.put(COLUMN_TIMESTAMP, timestamp);
         db.update(TABLE_TASKS, values, COLUMN_ID + "=?", new String[]{String.valueOf(id)});
-        db.close();
+        UPDATE_TASK_LATENCY.stopTimer(start);
     }
-}
 
+    /**
+     * Adds several tasks to the database in a single transaction.
+     *
+     * One INSERT statement is compiled and re-bound for every task, so a batch costs one commit instead of
+     * one per row. The IDs of the given tasks are ignored; new IDs are assigned by the database.
+     *
+     * @param tasks The tasks to add.
+     */
+    public void addTasks(Collection<Task> tasks) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(INSERT_TASK)) {
+            for (Task task : tasks) {
+                bindTask(insert, task);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        ADD_TASKS_LATENCY.stopTimer(start);
+    }
 
+    /**
+     * Updates several tasks in the database in a single transaction.
+     *
+     * Each task is matched by its ID and has its title, description, and timestamp replaced.
+     *
+     * @param tasks The tasks to update.
+     */
+    public void updateTasks(Collection<Task> tasks) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement update = db.compileStatement(UPDATE_TASK)) {
+            for (Task task : tasks) {
+                bindTask(update, task);
+                update.bindLong(4, task.getId());
+                update.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        UPDATE_TASKS_LATENCY.stopTimer(start);
+    }
+
+    /**
+     * Deletes several tasks from the database in a single transaction.
+     *
+     * @param ids The IDs of the tasks to delete.
+     */
+    public void deleteTasks(Collection<Integer> ids) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement delete = db.compileStatement(DELETE_TASK)) {
+            for (int id : ids) {
+                delete.bindLong(1, id);
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        DELETE_TASKS_LATENCY.stopTimer(start);
+    }
+
+    /**
+     * Updates and deletes several tasks in a single transaction.
+     *
+     * @param updates The tasks to update, matched by ID.
+     * @param deletedIds The IDs of the tasks to delete.
+     */
+    public void applyChanges(Collection<Task> updates, Collection<Integer> deletedIds) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement update = db.compileStatement(UPDATE_TASK);
+             SQLiteStatement delete = db.compileStatement(DELETE_TASK)) {
+            for (Task task : updates) {
+                bindTask(update, task);
+                update.bindLong(4, task.getId());
+                update.executeUpdateDelete();
+            }
+            for (int id : deletedIds) {
+                delete.bindLong(1, id);
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        APPLY_CHANGES_LATENCY.stopTimer(start);
+    }
+
+    /**
+     * Binds the title, description, and timestamp of a task to the first three parameters of a statement.
+     *
+     * @param statement The INSERT_TASK or UPDATE_TASK statement to bind.
+     * @param task The task whose values are bound.
+     */
+    private static void bindTask(SQLiteStatement statement, Task task) {
+        statement.clearBindings();
+        if (task.getTitle() != null) {
+            statement.bindString(1, task.getTitle());
+        }
+        if (task.getDescription() != null) {
+            statement.bindString(2, task.getDescription());
+        }
+        statement.bindLong(3, task.getTimestamp());
+    }
+
+    /**
+     * Retrieves the reminder ledger: the reminder alarms that are currently registered, keyed by task ID.
+     *
+     * @return A map from task ID to the reminder time the alarm was armed for.
+     */
+    public Map<Integer, Long> getReminderLedger() {
+        long start = Metrics.startTimer();
+        Map<Integer, Long> ledger = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_REMINDER_LEDGER, new String[]{COLUMN_TASK_ID, COLUMN_REMINDER_TIME},
+                null, null, null, null, null);
+        while (cursor.moveToNext()) {
+            ledger.put(cursor.getInt(0), cursor.getLong(1));
+        }
+        cursor.close();
+        GET_REMINDER_LEDGER_LATENCY.stopTimer(start);
+        return ledger;
+    }
+
+    /**
+     * Applies a set of changes to the reminder ledger in a single transaction.
+     *
+     * @param armed The reminders that were armed or re-armed, as task ID to reminder time.
+     * @param removed The task IDs whose reminders were cancelled or have already fired.
+     */
+    public void updateReminderLedger(Map<Integer, Long> armed, Collection<Integer> removed) {
+        long start = Metrics.startTimer();
+        if (armed.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int taskId : removed) {
+                db.delete(TABLE_REMINDER_LEDGER, COLUMN_TASK_ID + "=?", new String[]{String.valueOf(taskId)});
+            }
+            for (Map.Entry<Integer, Long> entry : armed.entrySet()) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_TASK_ID, entry.getKey());
+                values.put(COLUMN_REMINDER_TIME, entry.getValue());
+                db.insertWithOnConflict(TABLE_REMINDER_LEDGER, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        UPDATE_REMINDER_LEDGER_LATENCY.stopTimer(start);
+    }
+
+    /**
+     * Empties the reminder ledger.
+     *
+     * Used after a reboot, when the system has dropped every alarm the ledger refers to.
+     */
+    public void clearReminderLedger() {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_REMINDER_LEDGER, null, null);
+        CLEAR_REMINDER_LEDGER_LATENCY.stopTimer(start);
+    }
+
+    /**
+     * Adds a recurring task to the database.
+     *
+     * The series is stored as a single row, however many occurrences it has. The time of its last occurrence is
+     * stored with it, so getActiveSeries() can leave out ended series without expanding them.
+     *
+     * @param title The title of every occurrence.
+     * @param description The description of every occurrence.
+     * @param startTime The time of the first occurrence.
+     * @param frequency TaskSeries.DAILY, WEEKLY or MONTHLY.
+     * @param interval The number of days, weeks or months between occurrences.
+     * @param untilTime The latest time an occurrence may have, or TaskSeries.NO_END.
+     * @param count The number of occurrences, or TaskSeries.UNLIMITED.
+     * @return The ID of the new series.
+     */
+    public int addSeries(String title, String description, long startTime, int frequency, int interval,
+                         long untilTime, int count) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getWritableDatabase();
+        long id = db.insert(TABLE_SERIES, null, seriesValues(
+                new TaskSeries(0, title, description, startTime, frequency, interval, untilTime, count)));
+        ADD_SERIES_LATENCY.stopTimer(start);
+        return (int) id;
+    }
+
+    /**
+     * Builds the row of a series, with the time of its last occurrence.
+     */
+    private static ContentValues seriesValues(TaskSeries series) {
+        long endTime = series.getEndTime(TimeZone.getDefault());
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TITLE, series.getTitle());
+        values.put(COLUMN_DESCRIPTION, series.getDescription());
+        values.put(COLUMN_START_TIMESTAMP, series.getStartTime());
+        values.put(COLUMN_FREQUENCY, series.getFrequency());
+        values.put(COLUMN_INTERVAL, series.getInterval());
+        values.put(COLUMN_UNTIL_TIMESTAMP, series.getUntilTime() != TaskSeries.NO_END ? series.getUntilTime() : null);
+        values.put(COLUMN_COUNT, series.getCount());
+        values.put(COLUMN_END_TIMESTAMP, endTime != TaskSeries.NO_END ? endTime : null);
+        return values;
+    }
+
+    /**
+     * Retrieves the recurring tasks that still have occurrences after a time.
+     *
+     * @param after The exclusive lower bound; Long.MIN_VALUE returns every series.
+     * @return The series, ordered by ID.
+     */
+    public List<TaskSeries> getActiveSeries(long after) {
+        long start = Metrics.startTimer();
+        List<TaskSeries> seriesList = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_ACTIVE_SERIES, new String[]{String.valueOf(after)});
+        while (cursor.moveToNext()) {
+            seriesList.add(new TaskSeries(
+                    cursor.getInt(0),
+                    cursor.getString(1),
+                    cursor.getString(2),
+                    cursor.getLong(3),
+                    cursor.getInt(4),
+                    cursor.getInt(5),
+                    cursor.isNull(6) ? TaskSeries.NO_END : cursor.getLong(6),
+                    cursor.getInt(7)
+            ));
+        }
+        cursor.close();
+        ROWS_READ.add(seriesList.size());
+        GET_ACTIVE_SERIES_LATENCY.stopTimer(start);
+        return seriesList;
+    }
+
+    /**
+     * Deletes a recurring task, and with it every one of its occurrences.
+     *
+     * @param id The ID of the series to delete.
+     */
+    public void deleteSeries(int id) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_SERIES, COLUMN_ID + "=?", new String[]{String.valueOf(id)});
+        DELETE_SERIES_LATENCY.stopTimer(start);
+    }
+
+    /**
+     * Walks every task, with its full description, in (timestamp, ID) order.
+     *
+     * The table is read in keyset pages of pageSize rows and each row is handed to the visitor straight from the
+     * cursor, so memory use depends on the page size rather than on the size of the table. No transaction is held
+     * between pages, so writes are never blocked by a long walk; a task changed during the walk is visited at its
+     * position at the time its page is read.
+     *
+     * @param pageSize The number of rows read per query.
+     * @param visitor Receives every row; an exception it throws stops the walk.
+     * @return The number of rows visited.
+     */
+    public int forEachTask(int pageSize, TaskVisitor visitor) throws IOException {
+        return walk(QUERY_EXPORT_FIRST_PAGE, QUERY_EXPORT_NEXT_PAGE, pageSize, cursor -> visitor.visit(
+                cursor.getInt(0), cursor.getString(1), cursor.getString(2), cursor.getLong(3)));
+    }
+
+    /**
+     * Walks every archived task, with its full description, in (timestamp, ID) order, like forEachTask().
+     *
+     * @param pageSize The number of rows read per query.
+     * @param visitor Receives every row; an exception it throws stops the walk.
+     * @return The number of rows visited.
+     */
+    public int forEachArchivedTask(int pageSize, ArchivedTaskVisitor visitor) throws IOException {
+        return walk(QUERY_EXPORT_ARCHIVE_FIRST_PAGE, QUERY_EXPORT_ARCHIVE_NEXT_PAGE, pageSize, cursor -> visitor.visit(
+                cursor.getInt(0), cursor.getString(1), cursor.getString(2), cursor.getLong(3), cursor.getInt(4) != 0,
+                cursor.getLong(5)));
+    }
+
+    /**
+     * Walks a table in keyset pages of a first-page and a next-page query whose first and fourth columns are the
+     * ID and the timestamp.
+     */
+    private int walk(String firstPageQuery, String nextPageQuery, int pageSize, RowVisitor visitor) throws IOException {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String limit = String.valueOf(pageSize);
+        int visited = 0;
+        int pageRows;
+        long lastTimestamp = 0;
+        int lastId = 0;
+        do {
+            long start = Metrics.startTimer();
+            Cursor cursor;
+            if (visited == 0) {
+                cursor = db.rawQuery(firstPageQuery, new String[]{limit});
+            } else {
+                String timestamp = String.valueOf(lastTimestamp);
+                cursor = db.rawQuery(nextPageQuery, new String[]{timestamp, timestamp, String.valueOf(lastId), limit});
+            }
+            pageRows = 0;
+            try {
+                while (cursor.moveToNext()) {
+                    lastId = cursor.getInt(0);
+                    lastTimestamp = cursor.getLong(3);
+                    visitor.visit(cursor);
+                    pageRows++;
+                }
+            } finally {
+                cursor.close();
+            }
+            visited += pageRows;
+            ROWS_READ.add(pageRows);
+            EXPORT_PAGE_LATENCY.stopTimer(start);
+        } while (pageRows == pageSize);
+        return visited;
+    }
+
+    /**
+     * Inserts every task a source supplies, committing a transaction every batchSize rows.
+     *
+     * Only one batch is ever pending, so a source of any size can be imported. If the source fails, the batch in
+     * progress is rolled back and the batches already committed are kept. New IDs are assigned by the database.
+     *
+     * Archived tasks are inserted into the tasks table too, to be given an ID no task will ever reuse, and moved to
+     * the archive in the same transaction. Recurring tasks are inserted as series.
+     *
+     * @param source Supplies the tasks to insert.
+     * @param batchSize The number of rows per transaction.
+     * @param listener Notified after each commit, or null.
+     * @return The number of rows inserted.
+     */
+    public int importTasks(TaskSource source, int batchSize, @Nullable ImportListener listener) throws IOException {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int imported = 0;
+        boolean more = true;
+        try (SQLiteStatement insert = db.compileStatement(INSERT_TASK);
+             SQLiteStatement archive = db.compileStatement(ARCHIVE_TASK);
+             SQLiteStatement delete = db.compileStatement(DELETE_TASK)) {
+            while (more) {
+                long start = Metrics.startTimer();
+                int batchRows = 0;
+                db.beginTransaction();
+                try {
+                    while (batchRows < batchSize) {
+                        Task task = source.next();
+                        if (task == null) {
+                            more = false;
+                            break;
+                        }
+                        TaskSeries series = source.getSeries();
+                        if (series != null) {
+                            db.insert(TABLE_SERIES, null, seriesValues(series));
+                        } else {
+                            bindTask(insert, task);
+                            int id = (int) insert.executeInsert();
+                            if (source.isArchived()) {
+                                moveToArchive(archive, delete, id, source.isCompleted(), source.getArchivedTimestamp());
+                            }
+                        }
+                        batchRows++;
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                imported += batchRows;
+                IMPORT_BATCH_LATENCY.stopTimer(start);
+                if (listener != null && batchRows > 0) {
+                    listener.onBatchCommitted(imported);
+                }
+            }
+        }
+        return imported;
+    }
+
+    /**
+     * Moves the tasks whose time is before a cutoff from the tasks table to the archive, as expired.
+     *
+     * The tasks are found through the timestamp index and moved batchSize at a time, one transaction per batch,
+     * so the writer lock is never held for long and readers keep seeing a consistent list. Each task is copied and
+     * deleted by statements compiled once and re-bound for every row; the delete also removes it from the
+     * full-text index.
+     *
+     * @param dueBefore The exclusive upper bound of the times of the tasks to move.
+     * @param now The time recorded as the archiving time.
+     * @param batchSize The number of tasks moved per transaction.
+     * @return The IDs of the moved tasks.
+     */
+    public List<Integer> archiveTasksDueBefore(long dueBefore, long now, int batchSize) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        List<Integer> archivedIds = new ArrayList<>();
+        String[] args = {String.valueOf(dueBefore), String.valueOf(batchSize)};
+        try (SQLiteStatement archive = db.compileStatement(ARCHIVE_TASK);
+             SQLiteStatement delete = db.compileStatement(DELETE_TASK)) {
+            int batchRows;
+            do {
+                long start = Metrics.startTimer();
+                batchRows = 0;
+                db.beginTransaction();
+                try {
+                    Cursor cursor = db.rawQuery(QUERY_IDS_DUE_BEFORE, args);
+                    try {
+                        while (cursor.moveToNext()) {
+                            int id = cursor.getInt(0);
+                            moveToArchive(archive, delete, id, false, now);
+                            archivedIds.add(id);
+                            batchRows++;
+                        }
+                    } finally {
+                        cursor.close();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                ARCHIVE_BATCH_LATENCY.stopTimer(start);
+            } while (batchRows == batchSize);
+        }
+        return archivedIds;
+    }
+
+    /**
+     * Marks a task done by moving it to the archive, in a single transaction.
+     *
+     * @param id The ID of the task.
+     * @param now The time recorded as the archiving time.
+     * @return True if the task was moved, false if it does not exist (anymore).
+     */
+    public boolean completeTask(int id, long now) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getWritableDatabase();
+        boolean moved;
+        db.beginTransaction();
+        try (SQLiteStatement archive = db.compileStatement(ARCHIVE_TASK);
+             SQLiteStatement delete = db.compileStatement(DELETE_TASK)) {
+            moved = moveToArchive(archive, delete, id, true, now);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        COMPLETE_TASK_LATENCY.stopTimer(start);
+        return moved;
+    }
+
+    /**
+     * Copies a task to the archive and deletes it from the tasks table. Must run inside a transaction.
+     *
+     * @param archive The ARCHIVE_TASK statement.
+     * @param delete The DELETE_TASK statement.
+     * @param id The ID of the task.
+     * @param completed Whether the user marked the task done.
+     * @param now The time recorded as the archiving time.
+     * @return True if the task existed.
+     */
+    private static boolean moveToArchive(SQLiteStatement archive, SQLiteStatement delete, int id, boolean completed,
+                                         long now) {
+        archive.bindLong(1, completed ? 1 : 0);
+        archive.bindLong(2, now);
+        archive.bindLong(3, id);
+        if (archive.executeInsert() == -1) {
+            return false;
+        }
+        delete.bindLong(1, id);
+        delete.executeUpdateDelete();
+        return true;
+    }
+
+    /**
+     * Retrieves one page of archived tasks, most recent first, using keyset pagination.
+     *
+     * Like getTasksPage(), only a preview of each description is read.
+     *
+     * @param after The last archived task of the previous page, or null to fetch the first page.
+     * @param limit The maximum number of tasks to return.
+     * @return Up to limit archived tasks preceding the given one.
+     */
+    public List<ArchivedTask> getArchivePage(@Nullable ArchivedTask after, int limit) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor;
+        if (after == null) {
+            cursor = db.rawQuery(QUERY_ARCHIVE_FIRST_PAGE, new String[]{String.valueOf(limit)});
+        } else {
+            String timestamp = String.valueOf(after.getTask().getTimestamp());
+            cursor = db.rawQuery(QUERY_ARCHIVE_NEXT_PAGE,
+                    new String[]{timestamp, timestamp, String.valueOf(after.getTask().getId()), String.valueOf(limit)});
+        }
+        List<ArchivedTask> archivedTasks = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            Task task = new Task(cursor.getInt(0), cursor.getString(1), cursor.getString(2), cursor.getLong(3));
+            archivedTasks.add(new ArchivedTask(task, cursor.getInt(4) != 0, cursor.getLong(5)));
+        }
+        cursor.close();
+        ROWS_READ.add(archivedTasks.size());
+        GET_ARCHIVE_PAGE_LATENCY.stopTimer(start);
+        return archivedTasks;
+    }
+
+    /**
+     * Returns up to maxPages free pages of the database file to the file system.
+     *
+     * New databases use incremental vacuuming from the start (see onConfigure()). Databases created before it was
+     * enabled are rebuilt once with a full VACUUM, since the auto_vacuum mode of a database with tables can only
+     * change that way. From then on, deleted rows leave free
+     * pages that are released here in small steps, without rewriting the rest of the file.
+     *
+     * @param maxPages The maximum number of pages to release.
+     * @return The number of free pages left in the file.
+     */
+    public long incrementalVacuum(int maxPages) {
+        long start = Metrics.startTimer();
+        SQLiteDatabase db = this.getWritableDatabase();
+        if (DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null) != AUTO_VACUUM_INCREMENTAL) {
+            db.execSQL("PRAGMA auto_vacuum = " + AUTO_VACUUM_INCREMENTAL);
+            db.execSQL("VACUUM");
+        }
+        // The pragma releases one page per step of its statement, so the cursor is read to the end
+        Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum(" + maxPages + ")", null);
+        while (cursor.moveToNext()) {
+            // Keep stepping
+        }
+        cursor.close();
+        long freePages = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+        INCREMENTAL_VACUUM_LATENCY.stopTimer(start);
+        return freePages;
+    }
+}
@@ -9,21 +9,28 @@ import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import java.util.Calendar;
+import java.util.concurrent.Future;
 
 public class EditTaskActivity extends AppCompatActivity {
     private EditText editTextTitle, editTextDescription;
     private TextView textViewDateTime;
     private Button buttonSave, buttonPickDateTime;
-    private DatabaseHelper databaseHelper;
+    private TaskRepository taskRepository;
     private Calendar selectedDateTime = Calendar.getInstance();
     private int taskId;
+    private Future<?> pendingLoad;
+
+    private static final String KEY_SELECTED_TIME = "selectedTime";
 
     /**
      * Called when the activity is created.
      *
-     * Initializes the views, retrieves task data from the intent, and pre-fills the task data.
+     * Initializes the views, retrieves the task ID from the intent, and loads the full task in the background to
+     * pre-fill the task data. Saving is disabled until the task is loaded. When the activity is recreated, the
+     * views keep their own state and only the selected date and time are restored.
      * Sets up the date/time picker and save button.
      *
      * @param savedInstanceState The saved instance state.
@@ -39,20 +46,19 @@ public class EditTaskActivity extends AppCompatActivity {
         textViewDateTime = findViewById(R.id.textViewDateTime);
         buttonPickDateTime = findViewById(R.id.buttonPickDateTime);
         buttonSave = findViewById(R.id.buttonSave);
-        databaseHelper = new DatabaseHelper(this);
+        findViewById(R.id.layoutRepeat).setVisibility(View.GONE); // Only new tasks can be made to repeat
+        taskRepository = TaskRepository.getInstance(this);
 
-        // Get task data from the intent
+        // Get the task ID from the intent
         Intent intent = getIntent();
         taskId = intent.getIntExtra("taskId", -1);
-        String taskTitle = intent.getStringExtra("taskTitle");
-        String taskDescription = intent.getStringExtra("taskDescription");
-        long taskTimestamp = intent.getLongExtra("taskTimestamp", 0);
 
-        // Pre-fill the task data
-        editTextTitle.setText(taskTitle);
-        editTextDescription.setText(taskDescription);
-        selectedDateTime.setTimeInMillis(taskTimestamp);
-        textViewDateTime.setText(selectedDateTime.getTime().toString());
+        if (savedInstanceState != null) {
+            selectedDateTime.setTimeInMillis(savedInstanceState.getLong(KEY_SELECTED_TIME));
+            textViewDateTime.setText(selectedDateTime.getTime().toString());
+        } else {
+            loadTask();
+        }
 
         // Set up date/time picker
         buttonPickDateTime.setOnClickListener(v -> pickDateTime());
@@ -61,6 +67,52 @@ public class EditTaskActivity extends AppCompatActivity {
         buttonSave.setOnClickListener(v -> updateTask());
     }
 
+    /**
+     * Called before the activity may be destroyed, to save the selected date and time.
+     *
+     * @param outState The Bundle in which to save the state.
+     */
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putLong(KEY_SELECTED_TIME, selectedDateTime.getTimeInMillis());
+    }
+
+    /**
+     * Called when the activity is destroyed; cancels the task load if it is still running.
+     */
+    @Override
+    protected void onDestroy() {
+        if (pendingLoad != null) {
+            pendingLoad.cancel(true);
+        }
+        super.onDestroy();
+    }
+
+    /**
+     * Loads the full task by its ID and pre-fills the task data.
+     *
+     * If the task was deleted in the meantime, shows a toast message and closes the activity.
+     */
+    private void loadTask() {
+        buttonSave.setEnabled(false); // Nothing to save until the task is shown
+        pendingLoad = taskRepository.getTask(taskId, task -> {
+            pendingLoad = null;
+            if (task == null) {
+                Toast.makeText(this, "La tarea ya no existe", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+
+            // Pre-fill the task data
+            editTextTitle.setText(task.getTitle());
+            editTextDescription.setText(task.getDescription());
+            selectedDateTime.setTimeInMillis(task.getTimestamp());
+            textViewDateTime.setText(selectedDateTime.getTime().toString());
+            buttonSave.setEnabled(true);
+        });
+    }
+
     /**
      * Displays a date and time picker dialog to select a date and time.
      *
@@ -88,9 +140,12 @@ public class EditTaskActivity extends AppCompatActivity {
      *
      * Validates that the title and description are not empty before updating the task.
      *
-     * Updates the task in the database using the databaseHelper object.
+     * Queues the edit on the TaskRepository, which writes it to the database together with the other edits and
+     * deletions made in the meantime, or as soon as the app leaves the screen; reads made through the repository
+     * already show it.
      *
-     * Displays a toast message to indicate that the task has been updated, and returns a result code to the calling activity.
+     * Displays a toast message to indicate that the task has been updated, and returns a result code to the calling
+     * activity. The list moves the edited row when the repository reports the edit.
      */
     private void updateTask() {
         String title = editTextTitle.getText().toString().trim();
@@ -102,8 +157,8 @@ public class EditTaskActivity extends AppCompatActivity {
             return;
         }
 
-        // Update the task in the database
-        databaseHelper.updateTask(taskId, title, description, timestamp);
+        // Queue the edit; it is written in the background once the user stops making changes
+        taskRepository.queueUpdate(new Task(taskId, title, description, timestamp));
         Toast.makeText(this, "Tarea actualizada", Toast.LENGTH_SHORT).show();
         setResult(RESULT_OK);
         finish();
@@ -1,22 +1,33 @@
 package com.patino.todolistapp;
 
-import android.annotation.SuppressLint;
 import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.provider.Settings;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.Manifest;
+import android.widget.EditText;
+import android.widget.ImageButton;
 import android.widget.LinearLayout;
+import android.widget.PopupMenu;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
@@ -25,48 +36,131 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.snackbar.Snackbar;
 
-import java.util.Collections;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
-
-public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTaskLongClickListener {
+import java.util.Locale;
+import java.util.concurrent.Future;
+
+public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTaskLongClickListener,
+        TaskRepository.TaskObserver {
+    private static final String TAG = "MainActivity";
+    private static final Metrics.Histogram LOAD_TASKS_LATENCY = Metrics.histogram("list.loadTasks");
+    private static final Metrics.Histogram LOAD_NEXT_PAGE_LATENCY = Metrics.histogram("list.loadNextPage");
     private RecyclerView recyclerView;
     private TaskAdapter adapter;
-    private DatabaseHelper databaseHelper;
-    private static final int ADD_TASK_REQUEST = 1;
-    private static final int TASK_REMINDER_REQUEST_CODE = 1001;
+    private TaskRepository taskRepository;
+    private TaskRow.Factory rowFactory;
+    private StatusTicker statusTicker;
+    private static final int EXPORT_JSON_REQUEST = 2;
+    private static final int EXPORT_CSV_REQUEST = 3;
+    private static final int IMPORT_REQUEST = 4;
+    private static final int MENU_ARCHIVE = 5;
+    static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 15; // Rows left below the viewport before the next page is requested
     private LinearLayout noTasksContainer;
 
+    // Keyset paging state; the position also tracks the last occurrence of a recurring task shown
+    private TaskTimeline.Position pagePosition = TaskTimeline.Position.START;
+    private boolean hasMorePages;
+    private Future<?> pendingPageLoad;
+    private int listGeneration; // Incremented on every reload so late pages of an older list are dropped
+    private CancellationSignal pendingQueryCancellation;
+
+    // Search mode state; an empty query means the regular time-ordered list is shown
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::loadTasks;
+    private String searchQuery = "";
+
+    private boolean firstListShown; // Whether the time to the first displayed list has been reported
+    private Snackbar transferSnackbar; // Progress of the running export or import, if any
+    private Snackbar undoSnackbar; // Offers to undo the deletions that are still queued, if any
+
     /**
      * Called when the activity is created.
      *
-     * Initializes the activity's UI components, sets up the database helper, and loads tasks from the database.
+     * Initializes the activity's UI components, sets up the task repository, and loads tasks from the database.
      * Also sets up the FloatingActionButton to add new tasks, enables swipe-to-delete feature, and requests necessary permissions.
      *
      * @param savedInstanceState Bundle containing the activity's previously saved state, or null if the activity is being created for the first time.
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        Trace.beginSection("MainActivity.onCreate");
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
         // Initialize views
         noTasksContainer = findViewById(R.id.noTasksContainer); // Initialize the LinearLayout
         recyclerView = findViewById(R.id.recyclerView);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+
+        // The adapter lives as long as the activity; reloads submit new lists and only changed rows rebind
+        rowFactory = new TaskRow.Factory(this);
+        adapter = new TaskAdapter(this);
+        statusTicker = new StatusTicker(adapter); // Refreshes only the rows whose status changes over time
+        recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        // Initialize the task repository; writes made anywhere in the app update the list through onTasksChanged()
+        taskRepository = TaskRepository.getInstance(this);
+        taskRepository.addObserver(this);
+
+        // Search as the user types, waiting for a short pause so each keystroke does not start a query
+        EditText searchField = findViewById(R.id.searchField);
+        searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
 
-        // Initialize database helper
-        databaseHelper = new DatabaseHelper(this);
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchQuery = s.toString().trim();
+                cancelPendingLoad();
+                searchHandler.removeCallbacks(searchRunnable);
+                searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+            }
+        });
 
-        // Load tasks and reschedule alarms
-        loadTasks();
-        rescheduleAlarmsForAllTasks();
+        // Show the page SplashActivity already loaded, or the saved copy of the first page, or load tasks, and
+        // make sure the next reminder is armed
+        TaskTimeline.Page<TaskRow> prefetchedPage = taskRepository.takePrefetchedFirstPage();
+        if (prefetchedPage == null) {
+            prefetchedPage = taskRepository.readCachedFirstPage(PAGE_SIZE, rowFactory);
+        }
+        if (prefetchedPage != null) {
+            showFirstPage(prefetchedPage);
+        } else {
+            loadTasks();
+        }
+        taskRepository.refreshReminders(null);
+        ArchiveJobService.schedule(this); // Moves past tasks out of the list once a day
 
         // Set up FloatingActionButton to add a new task
         FloatingActionButton fab = findViewById(R.id.fab_add_task);
-        fab.setOnClickListener(view -> startActivityForResult(new Intent(this, AddTaskActivity.class), ADD_TASK_REQUEST));
+        fab.setOnClickListener(view -> startActivity(new Intent(this, AddTaskActivity.class)));
 
-        // Enable swipe-to-delete feature
+        // Export and import through the system file picker
+        ImageButton transferButton = findViewById(R.id.buttonTransfer);
+        transferButton.setOnClickListener(this::showTransferMenu);
+
+        // Enable swipe-to-delete and swipe-to-complete
         enableSwipeToDelete();
 
         // Request notification permission
@@ -84,12 +178,72 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
                 startActivity(intent);
             }
         }
+        Trace.endSection();
+    }
+
+    /**
+     * Called when the activity becomes visible.
+     *
+     * Starts the status ticker, which first refreshes any row whose status changed while the activity was hidden.
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+        statusTicker.start();
+    }
+
+    /**
+     * Called when the activity is no longer visible.
+     *
+     * Stops the status ticker so it does not wake up for rows nobody can see, and writes the queued edits and
+     * deletions; they can no longer be undone once the user has left the list.
+     */
+    @Override
+    protected void onStop() {
+        statusTicker.stop();
+        if (undoSnackbar != null) {
+            undoSnackbar.dismiss();
+        }
+        taskRepository.flushQueuedChanges();
+        super.onStop();
+    }
+
+    /**
+     * Called when the activity is destroyed.
+     *
+     * Drops any debounced search, cancels the query that is still running, if any, and stops observing writes.
+     */
+    @Override
+    protected void onDestroy() {
+        taskRepository.removeObserver(this);
+        searchHandler.removeCallbacks(searchRunnable);
+        cancelPendingLoad();
+        super.onDestroy();
+    }
+
+    /**
+     * Called when the activity state is dumped, for instance by "adb shell dumpsys activity".
+     *
+     * Appends the performance metrics after the standard activity state.
+     *
+     * @param prefix The indentation of every line.
+     * @param fd The raw file descriptor of the output.
+     * @param writer The writer to print to.
+     * @param args Additional arguments passed to dumpsys.
+     */
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd, @NonNull PrintWriter writer, @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Metrics:");
+        Metrics.dump(writer, prefix + "  ");
     }
+
     /**
      * Called when an activity returns a result to this activity.
      *
-     * Handles the result of the `AddTaskActivity` and refreshes the task list if a new task was added.
-     * Also schedules a reminder for the newly added task if the task time and title are provided in the intent.
+     * Starts the export or import once the user has picked a file. Added and edited tasks need no handling here;
+     * the repository reports them to onTasksChanged().
      *
      * @param requestCode The request code originally supplied to startActivityForResult(), allowing you to identify who this result came from.
      * @param resultCode The integer result code returned by the child activity through its setResult().
@@ -98,70 +252,307 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
     @Override
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        if (requestCode == ADD_TASK_REQUEST && resultCode == RESULT_OK) {
-            loadTasks(); // Refresh the task list
-
-            // Check if the intent contains a task time
-            if (data != null) {
-                long taskTime = data.getLongExtra("taskTime", 0);
-                String taskTitle = data.getStringExtra("taskTitle");
+        if (resultCode == RESULT_OK && data != null && data.getData() != null) {
+            if (requestCode == EXPORT_JSON_REQUEST) {
+                exportTasks(data.getData(), TaskTransfer.FORMAT_JSON);
+            } else if (requestCode == EXPORT_CSV_REQUEST) {
+                exportTasks(data.getData(), TaskTransfer.FORMAT_CSV);
+            } else if (requestCode == IMPORT_REQUEST) {
+                importTasks(data.getData());
+            }
+        }
+    }
 
-                // Call the scheduleTaskReminder method to schedule the task reminder
-                if (taskTime > 0 && taskTitle != null) {
-                    scheduleTaskReminder(this, taskTime, taskTitle);
-                }
+    /**
+     * Shows the export and import options, and the archive, below the header button.
+     *
+     * Each transfer option opens the system file picker; the transfer itself starts from onActivityResult().
+     *
+     * @param anchor The view the menu is attached to.
+     */
+    private void showTransferMenu(View anchor) {
+        PopupMenu menu = new PopupMenu(this, anchor);
+        menu.getMenu().add(0, EXPORT_JSON_REQUEST, 0, "Exportar a JSON");
+        menu.getMenu().add(0, EXPORT_CSV_REQUEST, 1, "Exportar a CSV");
+        menu.getMenu().add(0, IMPORT_REQUEST, 2, "Importar tareas");
+        menu.getMenu().add(0, MENU_ARCHIVE, 3, "Tareas archivadas");
+        menu.setOnMenuItemClickListener(item -> {
+            if (item.getItemId() == MENU_ARCHIVE) {
+                startActivity(new Intent(this, ArchiveActivity.class));
+                return true;
+            }
+            Intent intent;
+            if (item.getItemId() == IMPORT_REQUEST) {
+                intent = new Intent(Intent.ACTION_OPEN_DOCUMENT)
+                        .addCategory(Intent.CATEGORY_OPENABLE)
+                        .setType("*/*")
+                        .putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"application/json", "text/csv",
+                                "text/comma-separated-values", "text/plain"});
+            } else {
+                boolean csv = item.getItemId() == EXPORT_CSV_REQUEST;
+                intent = new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                        .addCategory(Intent.CATEGORY_OPENABLE)
+                        .setType(csv ? "text/csv" : "application/json")
+                        .putExtra(Intent.EXTRA_TITLE, csv ? "tareas.csv" : "tareas.json");
             }
+            startActivityForResult(intent, item.getItemId());
+            return true;
+        });
+        menu.show();
+    }
+
+    /**
+     * Streams every task into the chosen file, showing the progress in a Snackbar.
+     *
+     * @param uri The document picked by the user.
+     * @param format TaskTransfer.FORMAT_JSON or TaskTransfer.FORMAT_CSV.
+     */
+    private void exportTasks(Uri uri, int format) {
+        showTransferProgress("Exportando tareas…");
+        taskRepository.exportTasks(uri, format, rows -> showTransferProgress("Exportadas " + rows + " tareas…"),
+                new TaskRepository.Callback<TaskTransfer.Result>() {
+                    @Override
+                    public void onComplete(TaskTransfer.Result result) {
+                        showTransferResult("Exportadas", result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        showTransferMessage("No se pudo exportar: " + e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Imports the tasks of the chosen file, showing the progress in a Snackbar; the list reloads through onTasksChanged().
+     *
+     * The format is told from the document type, or from its name when the provider does not know the type.
+     *
+     * @param uri The document picked by the user.
+     */
+    private void importTasks(Uri uri) {
+        String type = getContentResolver().getType(uri);
+        String name = uri.getLastPathSegment();
+        boolean csv = type != null && type.contains("comma-separated") || "text/csv".equals(type)
+                || name != null && name.toLowerCase(Locale.ROOT).endsWith(".csv");
+        showTransferProgress("Importando tareas…");
+        taskRepository.importTasks(uri, csv ? TaskTransfer.FORMAT_CSV : TaskTransfer.FORMAT_JSON,
+                rows -> showTransferProgress("Importadas " + rows + " tareas…"),
+                new TaskRepository.Callback<TaskTransfer.Result>() {
+                    @Override
+                    public void onComplete(TaskTransfer.Result result) {
+                        showTransferResult("Importadas", result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        showTransferMessage("No se pudo importar: " + e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Shows or updates the progress Snackbar of a running transfer.
+     */
+    private void showTransferProgress(String message) {
+        if (isDestroyed()) {
+            return;
+        }
+        if (transferSnackbar == null) {
+            transferSnackbar = Snackbar.make(recyclerView, message, Snackbar.LENGTH_INDEFINITE);
+            transferSnackbar.show();
+        } else {
+            transferSnackbar.setText(message);
+        }
+    }
+
+    /**
+     * Replaces the progress Snackbar with the row count and throughput of a finished transfer.
+     */
+    private void showTransferResult(String verb, TaskTransfer.Result result) {
+        Log.i(TAG, verb + " " + result.getRows() + " tasks in " + result.getElapsedMillis() + " ms");
+        showTransferMessage(String.format(Locale.getDefault(), "%s %d tareas en %.1f s (%.0f tareas/s)", verb,
+                result.getRows(), result.getElapsedMillis() / 1000.0, result.getRowsPerSecond()));
+    }
+
+    /**
+     * Replaces the progress Snackbar with a final message.
+     */
+    private void showTransferMessage(String message) {
+        if (transferSnackbar != null) {
+            transferSnackbar.dismiss();
+            transferSnackbar = null;
+        }
+        if (!isDestroyed()) {
+            Snackbar.make(recyclerView, message, Snackbar.LENGTH_LONG).show();
         }
     }
     /**
-     * Loads all tasks from the database and updates the RecyclerView with the task list.
+     * Loads tasks from the start of the list and submits them to the adapter.
+     *
+     * Any page load still in flight is cancelled. As many rows as are currently shown (at least one page) are fetched
+     * on a background thread, so a reload after an add or edit keeps the user's scroll window. The adapter diffs the
+     * result against the displayed list and only rebinds rows that changed; further pages are loaded by loadNextPage()
+     * as the user scrolls.
      *
-     * Retrieves all tasks from the database, sorts them by timestamp, and initializes the TaskAdapter with the task list.
-     * Sets the adapter to the RecyclerView and updates the visibility of the noTasksContainer based on the number of tasks.
+     * In search mode the first page of ranked search results is loaded instead.
      */
     private void loadTasks() {
-        List<Task> tasks = databaseHelper.getAllTasks();
-        Collections.sort(tasks, (t1, t2) -> Long.compare(t1.getTimestamp(), t2.getTimestamp()));
+        long start = Metrics.startTimer();
+        cancelPendingLoad();
+        int generation = ++listGeneration;
+        if (searchQuery.isEmpty()) {
+            int limit = Math.max(PAGE_SIZE, adapter.getItemCount());
+            TaskRepository.Callback<TaskTimeline.Page<TaskRow>> onLoaded = page -> {
+                if (isDestroyed() || generation != listGeneration) {
+                    return;
+                }
+                pendingPageLoad = null;
+                showFirstPage(page);
+                LOAD_TASKS_LATENCY.stopTimer(start);
+            };
+            pendingPageLoad = taskRepository.getTaskRowsPage(TaskTimeline.Position.START, limit, rowFactory, onLoaded);
+        } else {
+            TaskRepository.Callback<List<TaskRow>> onLoaded = rows -> {
+                if (isDestroyed() || generation != listGeneration) {
+                    return;
+                }
+                pendingPageLoad = null;
+                hasMorePages = rows.size() == PAGE_SIZE;
+                LOAD_TASKS_LATENCY.stopTimer(start);
+                adapter.submitList(rows, () -> {
+                    updateEmptyState();
+                    recyclerView.scrollToPosition(0); // Best match first
+                });
+            };
+            pendingQueryCancellation = new CancellationSignal();
+            pendingPageLoad = taskRepository.searchTaskRows(searchQuery, PAGE_SIZE, 0, pendingQueryCancellation,
+                    rowFactory, onLoaded);
+        }
+    }
 
-        // Initialize the adapter with the task list and this activity as the long-click listener
-        adapter = new TaskAdapter(tasks, databaseHelper, this);
-        recyclerView.setAdapter(adapter);
+    /**
+     * Replaces the displayed list with the first page of the time-ordered list.
+     *
+     * @param page The first page.
+     */
+    private void showFirstPage(TaskTimeline.Page<TaskRow> page) {
+        onPageLoaded(page);
+        adapter.submitList(page.getItems(), () -> {
+            updateEmptyState();
+            onFirstListShown();
+        });
+    }
 
-        // Check if there are no tasks and show/hide the noTasksContainer
-        if (adapter.getItemCount() == 0) {
-            noTasksContainer.setVisibility(View.VISIBLE); // Show the entire LinearLayout
+    /**
+     * Reports the cold-start time once, when the first list has been handed to the RecyclerView.
+     *
+     * The time is measured from the start of the process and logged; reportFullyDrawn() also lets the system
+     * record it as the "Fully drawn" startup time.
+     */
+    private void onFirstListShown() {
+        if (firstListShown) {
+            return;
+        }
+        firstListShown = true;
+        Log.i(TAG, "Time to first list: " + (SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) + " ms");
+        reportFullyDrawn();
+    }
+
+    /**
+     * Requests the page of tasks that follows the last loaded task, unless a load is already running or
+     * the end of the list has been reached. In search mode, the next page of ranked results is requested.
+     */
+    private void loadNextPage() {
+        if (pendingPageLoad != null || !hasMorePages) {
+            return;
+        }
+        long start = Metrics.startTimer();
+        int generation = listGeneration;
+        if (searchQuery.isEmpty()) {
+            pendingPageLoad = taskRepository.getTaskRowsPage(pagePosition, PAGE_SIZE, rowFactory, page -> {
+                if (isDestroyed() || generation != listGeneration) {
+                    return; // The list was reloaded while this page was in flight
+                }
+                pendingPageLoad = null;
+                onPageLoaded(page);
+                LOAD_NEXT_PAGE_LATENCY.stopTimer(start);
+                adapter.appendRows(page.getItems(), this::updateEmptyState);
+            });
         } else {
-            noTasksContainer.setVisibility(View.GONE); // Hide the entire LinearLayout
+            pendingQueryCancellation = new CancellationSignal();
+            pendingPageLoad = taskRepository.searchTaskRows(searchQuery, PAGE_SIZE, adapter.getItemCount(),
+                    pendingQueryCancellation, rowFactory, rows -> {
+                        if (isDestroyed() || generation != listGeneration) {
+                            return; // The search changed while this page was in flight
+                        }
+                        pendingPageLoad = null;
+                        hasMorePages = rows.size() == PAGE_SIZE;
+                        LOAD_NEXT_PAGE_LATENCY.stopTimer(start);
+                        adapter.appendRows(rows, this::updateEmptyState);
+                    });
         }
     }
 
     /**
-     * Reschedules alarms for all tasks in the database.
-     *
-     * Retrieves all tasks from the database and iterates through them, scheduling a reminder for each task that has a future timestamp.
+     * Cancels the page load or search that is still running, if any, aborting its SQLite query.
+     */
+    private void cancelPendingLoad() {
+        if (pendingPageLoad != null) {
+            pendingPageLoad.cancel(true);
+            pendingPageLoad = null;
+        }
+        if (pendingQueryCancellation != null) {
+            pendingQueryCancellation.cancel();
+            pendingQueryCancellation = null;
+        }
+    }
+
+    /**
+     * Advances the keyset paging state past the given page of the time-ordered list.
      *
-     * Note: This method only schedules alarms for tasks with timestamps in the future.
+     * @param page The page that was just loaded.
      */
-    private void rescheduleAlarmsForAllTasks() {
-        List<Task> tasks = databaseHelper.getAllTasks();
-        for (Task task : tasks) {
-            long taskTime = task.getTimestamp();
-            String taskTitle = task.getTitle();
-            if (taskTime > System.currentTimeMillis()) { // Only schedule alarms for future tasks
-                scheduleTaskReminder(this, taskTime, taskTitle);
-            }
+    private void onPageLoaded(TaskTimeline.Page<TaskRow> page) {
+        pagePosition = page.getNext();
+        hasMorePages = page.hasMore();
+    }
+
+    /**
+     * Shows the noTasksContainer when the list is empty and hides it otherwise.
+     */
+    private void updateEmptyState() {
+        if (adapter.getItemCount() == 0) {
+            noTasksContainer.setVisibility(View.VISIBLE); // Show the entire LinearLayout
+        } else {
+            noTasksContainer.setVisibility(View.GONE); // Hide the entire LinearLayout
         }
     }
+
     /**
      * Enables swipe-to-delete functionality for the RecyclerView.
      *
      * Creates an ItemTouchHelper callback that handles swipe gestures on the RecyclerView, allowing users to delete tasks by swiping left.
-     * When a task is swiped, the corresponding alarm is cancelled, the task is deleted from the database, and the adapter is updated.
+     * When a task is swiped, its row is removed right away and the deletion is queued on the repository, which writes
+     * the deletions of a burst of swipes in one transaction (re-arming the reminder alarm) once the user stops.
+     * Until then a Snackbar offers to undo them without the database ever seeing them.
+     *
+     * Swiping right marks the task done instead, moving it to the archive; its row is removed once the move is written.
      *
      * After deletion, checks if the list is empty and updates the visibility of the noTasksContainer accordingly.
      */
     private void enableSwipeToDelete() {
-        ItemTouchHelper.SimpleCallback callback = new ItemTouchHelper.SimpleCallback(0, ItemTouchHelper.LEFT) {
+        ItemTouchHelper.SimpleCallback callback = new ItemTouchHelper.SimpleCallback(0,
+                ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT) {
+            @Override
+            public int getSwipeDirs(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder) {
+                int position = viewHolder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && TaskSeries.isOccurrenceId(adapter.getTaskAt(position).getId())) {
+                    return 0; // A single occurrence cannot be deleted or completed; the whole series is deleted from its long-click dialog
+                }
+                return super.getSwipeDirs(recyclerView, viewHolder);
+            }
+
             @Override
             public boolean onMove(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder, @NonNull RecyclerView.ViewHolder target) {
                 return false;
@@ -171,114 +562,168 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.OnTas
             public void onSwiped(RecyclerView.ViewHolder viewHolder, int direction) {
                 int position = viewHolder.getAdapterPosition();
                 Task task = adapter.getTaskAt(position);
-
-                // Cancel the alarm for the deleted task
-                cancelTaskReminder(task.getTimestamp());
-
-                // Delete the task from the database
-                databaseHelper.deleteTask(task.getId());
-                adapter.removeTask(position);
-
-                // After removal, check if the list is empty and show/hide the noTasksContainer
-                if (adapter.getItemCount() == 0) {
-                    noTasksContainer.setVisibility(View.VISIBLE); // Show the entire LinearLayout
+                if (direction == ItemTouchHelper.RIGHT) {
+                    completeTask(task);
+                    return;
                 }
+
+                // Queue the deletion; onTasksChanged() removes the row right away
+                taskRepository.queueDelete(task);
+                showUndoSnackbar();
             }
         };
         new ItemTouchHelper(callback).attachToRecyclerView(recyclerView);
     }
     /**
-     * Method to cancel the task reminder alarm
-     * Cancels a previously scheduled task reminder alarm.
+     * Called when a task is long-clicked in the RecyclerView.
      *
-     * Retrieves the AlarmManager instance and creates a PendingIntent with the same request code used to schedule the alarm.
-     * Then, cancels the alarm using the AlarmManager instance.
+     * Opens the EditTaskActivity and passes the task ID in the intent; the list only holds a preview of the
+     * description, so EditTaskActivity loads the full task itself.
+     * Occurrences of a recurring task are not stored tasks, so for them a dialog offers to delete the whole series.
      *
-     * @param taskTime The timestamp of the task for which to cancel the alarm.
+     * @param task The task that was long-clicked.
      */
-    public void cancelTaskReminder(long taskTime) {
-        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+    @Override
+    public void onTaskLongClick(Task task) {
+        if (TaskSeries.isOccurrenceId(task.getId())) {
+            confirmDeleteSeries(task);
+            return;
+        }
+        // Open EditTaskActivity and pass the task ID
+        Intent intent = new Intent(this, EditTaskActivity.class);
+        intent.putExtra("taskId", task.getId()); // Pass the task ID
+        startActivity(intent);
+    }
 
-        // Create an intent for the broadcast receiver
-        Intent intent = new Intent(this, TaskReminderReceiver.class);
-
-        // Create a PendingIntent with the same request code used to schedule the alarm
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                this,
-                (int) taskTime, // Use taskTime as the request code to ensure uniqueness
-                intent,
-                PendingIntent.FLAG_IMMUTABLE // Use FLAG_IMMUTABLE for security
-        );
-
-        // Cancel the alarm
-        if (alarmManager != null) {
-            alarmManager.cancel(pendingIntent);
-            Log.d("TaskReminder", "Alarm canceled for task time: " + taskTime);
+    /**
+     * Shows how many deletions are queued, with an action that undoes them all.
+     */
+    private void showUndoSnackbar() {
+        if (undoSnackbar != null) {
+            undoSnackbar.dismiss();
         }
+        int count = taskRepository.getQueuedDeleteCount();
+        Snackbar snackbar = Snackbar.make(recyclerView, count == 1 ? "Tarea eliminada" : count + " tareas eliminadas",
+                Snackbar.LENGTH_LONG);
+        snackbar.setAction("Deshacer", v -> undoDeletes());
+        snackbar.addCallback(new Snackbar.Callback() {
+            @Override
+            public void onDismissed(Snackbar transientBottomBar, int event) {
+                if (undoSnackbar == transientBottomBar) {
+                    undoSnackbar = null;
+                }
+            }
+        });
+        undoSnackbar = snackbar;
+        snackbar.show();
     }
 
     /**
-     * Schedules a task reminder alarm to go off at a specified time.
+     * Moves a task to the archive as done; onTasksChanged() removes its row once the move is written.
      *
-     * Calculates the reminder time to be 10 minutes before the task time and schedules an alarm using the AlarmManager instance.
-     * The alarm is set to trigger a broadcast to the TaskReminderReceiver class.
+     * If the task was already gone or the write failed, nothing is published, so the swiped row is put back here.
      *
-     * @param context The context in which to schedule the alarm.
-     * @param taskTime The timestamp of the task for which to schedule the reminder.
-     * @param taskTitle The title of the task for which to schedule the reminder.
+     * @param task The task that was swiped.
      */
-    @SuppressLint("ScheduleExactAlarm")
-    public static void scheduleTaskReminder(Context context, long taskTime, String taskTitle) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-
-        long reminderTime = taskTime - 10 * 60 * 1000; // 10 minutes before (in milliseconds)
+    private void completeTask(Task task) {
+        taskRepository.completeTask(task.getId(), new TaskRepository.Callback<Boolean>() {
+            @Override
+            public void onComplete(Boolean moved) {
+                if (moved) {
+                    if (!isDestroyed()) {
+                        Snackbar.make(recyclerView, "Tarea completada", Snackbar.LENGTH_SHORT).show();
+                    }
+                } else {
+                    restoreSwipedRow(task, "La tarea ya no existe");
+                }
+            }
 
-        Log.d("TaskReminder", "Task time: " + taskTime + ", Reminder time: " + reminderTime);
+            @Override
+            public void onError(Exception e) {
+                restoreSwipedRow(task, "No se pudo completar la tarea");
+            }
+        });
+    }
 
-        if (reminderTime <= System.currentTimeMillis()) {
-            Log.d("TaskReminder", "Reminder time is in the past. Cannot schedule.");
+    /**
+     * Redraws the row of a task whose swipe was not carried out, bringing it back into view, and tells the user why.
+     *
+     * @param task The task that was swiped.
+     * @param message The reason shown in a Snackbar.
+     */
+    private void restoreSwipedRow(Task task, String message) {
+        if (isDestroyed()) {
             return;
         }
-
-        // Create an intent for the broadcast receiver
-        Intent intent = new Intent(context, TaskReminderReceiver.class);
-        intent.putExtra("taskTitle", taskTitle);
-        intent.putExtra("taskTime", taskTime);
-
-        // Create a PendingIntent
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                (int) taskTime, // Use taskTime as the request code to ensure uniqueness
-                intent,
-                PendingIntent.FLAG_IMMUTABLE // Use FLAG_IMMUTABLE for security
-        );
-
-        // Schedule the alarm
-        if (alarmManager != null) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, reminderTime, pendingIntent);
-            } else {
-                alarmManager.setExact(AlarmManager.RTC_WAKEUP, reminderTime, pendingIntent);
+        for (int position = 0; position < adapter.getItemCount(); position++) {
+            if (adapter.getTaskAt(position).getId() == task.getId()) {
+                adapter.notifyItemChanged(position);
+                break;
             }
-            Log.d("TaskReminder", "Alarm set for: " + reminderTime);
         }
+        Snackbar.make(recyclerView, message, Snackbar.LENGTH_LONG).show();
     }
 
     /**
-     * Called when a task is long-clicked in the RecyclerView.
+     * Cancels the queued deletions; onTasksChanged() puts their rows back.
+     */
+    private void undoDeletes() {
+        taskRepository.undoQueuedDeletes();
+    }
+
+    /**
+     * Called on the main thread when tasks were written or queued, from this screen or anywhere else in the app.
      *
-     * Opens the EditTaskActivity and passes the task data as extras in the intent.
+     * Only the rows of the tasks that changed are removed, moved or inserted; rows that sort after the loaded pages
+     * arrive with a later page. Recurring tasks and imports, whose changes are not listed row by row, reload the
+     * list, and so does any change other than a deletion while ranked search results are shown.
      *
-     * @param task The task that was long-clicked.
+     * A queued edit that moves a task in time is not written early: the row is re-sorted here, and the pages loaded
+     * while scrolling show the task at its new time from the queued change as well.
+     *
+     * @param changes What changed.
      */
     @Override
-    public void onTaskLongClick(Task task) {
-        // Open EditTaskActivity and pass the task data
-        Intent intent = new Intent(this, EditTaskActivity.class);
-        intent.putExtra("taskId", task.getId()); // Pass the task ID
-        intent.putExtra("taskTitle", task.getTitle()); // Pass the task title
-        intent.putExtra("taskDescription", task.getDescription()); // Pass the task description
-        intent.putExtra("taskTimestamp", task.getTimestamp()); // Pass the task timestamp
-        startActivityForResult(intent, ADD_TASK_REQUEST); // Use the same request code as adding a task
+    public void onTasksChanged(TaskChangeSet changes) {
+        if (changes.isAllChanged() || changes.isSeriesChanged()
+                || !searchQuery.isEmpty() && !changes.getChangedTasks().isEmpty()) {
+            loadTasks();
+            return;
+        }
+        List<Task> shown = new ArrayList<>(changes.getChangedTasks().size());
+        for (Task task : changes.getChangedTasks()) {
+            if (isWithinLoadedRange(task)) {
+                shown.add(task);
+            }
+        }
+        adapter.updateRows(changes.getTouchedIds(), rowFactory.createRows(shown), this::updateEmptyState);
+    }
+
+    /**
+     * Tells whether a task sorts among the rows loaded so far; one that sorts after them arrives with a later page.
+     */
+    private boolean isWithinLoadedRange(Task task) {
+        int count = adapter.getItemCount();
+        if (!hasMorePages || count == 0) {
+            return true;
+        }
+        Task last = adapter.getTaskAt(count - 1);
+        return task.getTimestamp() < last.getTimestamp()
+                || task.getTimestamp() == last.getTimestamp() && task.getId() <= last.getId();
+    }
+
+    /**
+     * Asks whether to delete the recurring task an occurrence belongs to; the list reloads through onTasksChanged().
+     *
+     * @param occurrence The occurrence that was long-clicked.
+     */
+    private void confirmDeleteSeries(Task occurrence) {
+        new AlertDialog.Builder(this)
+                .setTitle("Tarea repetida")
+                .setMessage("¿Eliminar '" + occurrence.getTitle() + "' y todas sus repeticiones?")
+                .setPositiveButton("Eliminar", (dialog, which) -> taskRepository.deleteSeries(
+                        TaskSeries.seriesIdOf(occurrence.getId()), null))
+                .setNegativeButton("Cancelar", null)
+                .show();
     }
-}
\ No newline at end of file
+}
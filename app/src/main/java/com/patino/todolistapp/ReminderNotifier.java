@@ -0,0 +1,113 @@
+package com.patino.todolistapp;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.service.notification.StatusBarNotification;
+
+import androidx.core.app.NotificationCompat;
+
+public class ReminderNotifier {
+    private static final String CHANNEL_ID = "task_notification_channel";
+    private static final String GROUP_KEY = "com.patino.todolistapp.TASK_REMINDERS";
+    private static final int SUMMARY_NOTIFICATION_ID = 0; // Task IDs start at 1 and occurrence IDs are negative, so 0 never clashes
+
+    private static volatile boolean channelCreated;
+
+    private ReminderNotifier() {
+    }
+
+    /**
+     * Posts the reminders for a batch of tasks that became due together.
+     *
+     * Each task gets its own notification keyed by its ID, so a later reminder never overwrites an earlier one.
+     * When more than one reminder is showing, they are bundled under a summary notification; the children are set
+     * to stay silent so a burst of due tasks alerts (and vibrates) once, through the summary.
+     *
+     * @param context The Context in which the notifications will be shown.
+     * @param tasks The tasks whose reminders are due.
+     */
+    public static void notifyTasksDue(Context context, TaskSnapshot tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        ensureChannel(notificationManager);
+
+        int previouslyActive = countActiveReminders(notificationManager);
+        boolean grouped = tasks.size() > 1 || previouslyActive > 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                    .setContentTitle("Recordatorio de tarea")
+                    .setContentText("Tu tarea '" + tasks.getTitle(i) + "' está a punto de comenzar.")
+                    .setSmallIcon(android.R.drawable.ic_dialog_info)
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setWhen(tasks.getTimestamp(i))
+                    .setGroup(GROUP_KEY);
+            if (grouped) {
+                builder.setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+            }
+            notificationManager.notify(tasks.getId(i), builder.build());
+        }
+
+        if (grouped) {
+            postSummary(context, notificationManager, tasks, previouslyActive + tasks.size());
+        }
+    }
+
+    /**
+     * Posts or updates the summary notification that bundles the individual reminders.
+     */
+    private static void postSummary(Context context, NotificationManager notificationManager, TaskSnapshot newTasks, int activeCount) {
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+                .setSummaryText(activeCount + " tareas pendientes");
+        for (int i = 0; i < newTasks.size(); i++) {
+            style.addLine(newTasks.getTitle(i));
+        }
+
+        Notification summary = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setContentTitle("Recordatorio de tareas")
+                .setContentText(activeCount + " tareas están a punto de comenzar.")
+                .setSmallIcon(android.R.drawable.ic_dialog_info)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setStyle(style)
+                .setNumber(activeCount)
+                .setGroup(GROUP_KEY)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                .build();
+        notificationManager.notify(SUMMARY_NOTIFICATION_ID, summary);
+    }
+
+    /**
+     * Counts the reminder notifications that are currently showing, not including the summary.
+     */
+    private static int countActiveReminders(NotificationManager notificationManager) {
+        int count = 0;
+        for (StatusBarNotification notification : notificationManager.getActiveNotifications()) {
+            if (notification.getId() != SUMMARY_NOTIFICATION_ID
+                    && GROUP_KEY.equals(notification.getNotification().getGroup())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates the notification channel for Android 8.0 and above, once per process.
+     */
+    private static void ensureChannel(NotificationManager notificationManager) {
+        if (channelCreated || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        NotificationChannel channel = new NotificationChannel(
+                CHANNEL_ID,
+                "Task Notifications",
+                NotificationManager.IMPORTANCE_HIGH
+        );
+        notificationManager.createNotificationChannel(channel);
+        channelCreated = true;
+    }
+}
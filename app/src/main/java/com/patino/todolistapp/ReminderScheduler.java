@@ -0,0 +1,212 @@
+package com.patino.todolistapp;
+
+import android.annotation.SuppressLint;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+public class ReminderScheduler {
+    private static final String TAG = "TaskReminder";
+    static final long REMINDER_OFFSET_MILLIS = TaskSchedule.REMINDER_OFFSET_MILLIS;
+    static final long COALESCE_WINDOW_MILLIS = 60 * 1000; // Reminders due this close together are posted as one batch
+    private static final String PREFS_NAME = "reminders";
+    private static final String KEY_NOTIFIED_UNTIL = "notified_until";
+    private static final Metrics.Histogram SCHEDULE_LATENCY = Metrics.histogram("reminders.schedule");
+    private static final Metrics.Histogram CANCEL_LATENCY = Metrics.histogram("reminders.cancel");
+    private static final Metrics.Counter SKIPPED_IN_PAST = Metrics.counter("reminders.skippedInPast");
+
+    private ReminderScheduler() {
+    }
+
+    /**
+     * Brings the registered reminder alarms in line with the tasks in the database.
+     *
+     * The desired alarms are the reminders for the next due task (several if they share a timestamp), found with a
+     * single indexed query, merged with the next occurrence of each recurring task that is due as early. Series are
+     * never expanded beyond that next occurrence; it gets the alarm slot of its negated series ID, and once it fires
+     * the following reconciliation moves the same slot on to the occurrence after it. They are compared with the reminder ledger, which records the alarms already registered,
+     * keyed by task ID. Only the differences reach AlarmManager: new or moved reminders are armed, reminders for
+     * deleted, rescheduled or already fired tasks are cancelled and dropped from the ledger.
+     * When nothing changed, no alarm is touched.
+     *
+     * When an armed alarm fires, TaskReminderReceiver calls this method again to move on to the next task, so the
+     * number of registered alarms stays constant regardless of how many tasks exist.
+     *
+     * @param context The context in which to schedule the alarms.
+     */
+    @WorkerThread
+    public static synchronized void reconcileReminders(Context context) {
+        DatabaseHelper databaseHelper = DatabaseHelper.getInstance(context);
+        long now = System.currentTimeMillis();
+        // Skip tasks whose reminder was already posted as part of an earlier batch
+        long notifiedUntil = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getLong(KEY_NOTIFIED_UNTIL, 0);
+        long after = Math.max(TaskSchedule.firstRemindableTaskTime(now), notifiedUntil);
+        TaskSnapshot nextDue = TaskTimeline.nextDue(databaseHelper.getNextDueTasks(after),
+                databaseHelper.getActiveSeries(after), after, TimeZone.getDefault());
+        Map<Integer, Long> ledger = databaseHelper.getReminderLedger();
+
+        Map<Integer, Long> armed = new HashMap<>();
+        for (int i = 0; i < nextDue.size(); i++) {
+            int taskId = nextDue.getId(i);
+            long reminderTime = TaskSchedule.reminderTime(nextDue.getTimestamp(i));
+            Long ledgerTime = ledger.remove(taskId);
+            if (ledgerTime != null && ledgerTime == reminderTime && isReminderRegistered(context, taskId)) {
+                continue; // Already armed for the right time
+            }
+            scheduleTaskReminder(context, taskId, nextDue.getTimestamp(i));
+            armed.put(taskId, reminderTime);
+        }
+
+        // Whatever is left in the ledger is no longer wanted: the task was deleted, moved, or its reminder fired
+        List<Integer> removed = new ArrayList<>(ledger.keySet());
+        for (int taskId : removed) {
+            cancelTaskReminder(context, taskId);
+        }
+
+        databaseHelper.updateReminderLedger(armed, removed);
+        Log.d(TAG, "Reminders reconciled: " + armed.size() + " armed, " + removed.size() + " removed");
+    }
+
+    /**
+     * Records that reminders have been posted for every task due up to the given time.
+     *
+     * TaskReminderReceiver notifies a whole window of tasks at once, including tasks whose own reminder time has not
+     * quite arrived; this keeps the next reconciliation from arming them again. The mark is the time of the latest
+     * task actually notified, not the end of the window, so a task added later inside the window is still reminded.
+     * It never moves back.
+     *
+     * @param context The context used to access the preferences.
+     * @param taskTime The latest task time whose reminder has been posted.
+     */
+    public static synchronized void markNotifiedUntil(Context context, long taskTime) {
+        SharedPreferences preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (taskTime > preferences.getLong(KEY_NOTIFIED_UNTIL, 0)) {
+            preferences.edit()
+                    .putLong(KEY_NOTIFIED_UNTIL, taskTime)
+                    .apply();
+        }
+    }
+
+    /**
+     * Forgets every alarm recorded in the reminder ledger.
+     *
+     * Must be called when the system has dropped all alarms, such as after a reboot, so the next reconciliation
+     * arms the reminders again.
+     *
+     * @param context The context used to open the database.
+     */
+    @WorkerThread
+    public static synchronized void resetLedger(Context context) {
+        DatabaseHelper.getInstance(context).clearReminderLedger();
+    }
+
+    /**
+     * Schedules a task reminder alarm to go off 10 minutes before the task time.
+     *
+     * The task ID is used as the request code, so each task has exactly one alarm slot: scheduling the same task again
+     * replaces its previous alarm, and different tasks can never collide.
+     * The alarm is set to trigger a broadcast to the TaskReminderReceiver class.
+     *
+     * @param context The context in which to schedule the alarm.
+     * @param taskId The ID of the task for which to schedule the reminder.
+     * @param taskTime The timestamp of the task.
+     */
+    @SuppressLint("ScheduleExactAlarm")
+    static void scheduleTaskReminder(Context context, int taskId, long taskTime) {
+        long start = Metrics.startTimer();
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+
+        long reminderTime = TaskSchedule.reminderTime(taskTime);
+
+        Log.d(TAG, "Task time: " + taskTime + ", Reminder time: " + reminderTime);
+
+        if (reminderTime <= System.currentTimeMillis()) {
+            Log.d(TAG, "Reminder time is in the past. Cannot schedule.");
+            SKIPPED_IN_PAST.increment();
+            return;
+        }
+
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                taskId,
+                createReminderIntent(context, taskId, taskTime),
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
+        );
+
+        // Schedule the alarm
+        if (alarmManager != null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, reminderTime, pendingIntent);
+            } else {
+                alarmManager.setExact(AlarmManager.RTC_WAKEUP, reminderTime, pendingIntent);
+            }
+            Log.d(TAG, "Alarm set for task " + taskId + " at: " + reminderTime);
+        }
+        SCHEDULE_LATENCY.stopTimer(start);
+    }
+
+    /**
+     * Cancels the reminder alarm of a task, if one is registered.
+     *
+     * @param context The context in which the alarm was scheduled.
+     * @param taskId The ID of the task whose reminder should be cancelled.
+     */
+    static void cancelTaskReminder(Context context, int taskId) {
+        long start = Metrics.startTimer();
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+
+        // Look up the PendingIntent with the same request code used to schedule the alarm
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                taskId,
+                createReminderIntent(context, taskId, 0),
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_NO_CREATE
+        );
+
+        // Cancel the alarm
+        if (alarmManager != null && pendingIntent != null) {
+            alarmManager.cancel(pendingIntent);
+            pendingIntent.cancel();
+            Log.d(TAG, "Alarm canceled for task " + taskId);
+        }
+        CANCEL_LATENCY.stopTimer(start);
+    }
+
+    /**
+     * Checks whether the system still holds the reminder PendingIntent of a task.
+     *
+     * Force-stopping the app drops its alarms and PendingIntents without telling it, so the ledger alone cannot be
+     * trusted to know that an alarm is still registered.
+     */
+    private static boolean isReminderRegistered(Context context, int taskId) {
+        return PendingIntent.getBroadcast(
+                context,
+                taskId,
+                createReminderIntent(context, taskId, 0),
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_NO_CREATE
+        ) != null;
+    }
+
+    /**
+     * Creates the broadcast intent delivered to TaskReminderReceiver. Extras do not take part in PendingIntent
+     * matching, so the same intent shape can be used to arm, look up and cancel a task's alarm.
+     */
+    private static Intent createReminderIntent(Context context, int taskId, long taskTime) {
+        Intent intent = new Intent(context, TaskReminderReceiver.class);
+        intent.putExtra("taskId", taskId);
+        intent.putExtra("taskTime", taskTime);
+        return intent;
+    }
+}
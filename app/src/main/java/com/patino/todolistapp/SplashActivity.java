@@ -3,6 +3,8 @@ package com.patino.todolistapp;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
 import android.view.View;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
@@ -10,25 +12,54 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.util.concurrent.Future;
+
 public class SplashActivity extends AppCompatActivity {
+    private static final long TAGLINE_DELAY_MILLIS = 1000; // The tagline follows once the name and icon faded in
+    private static final long MIN_SPLASH_MILLIS = 2000; // Long enough for the tagline to finish fading in
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable onAnimationReady = () -> {
+        animationReady = true;
+        startMainActivityWhenReady();
+    };
+    private boolean animationReady;
+    private boolean dataReady;
+    private Future<?> pendingPrefetch;
 
     /**
      * Called when the activity is created.
      *
      * Initializes the views, loads animations, and sets up a sequence of animations to display the splash screen.
+     * While the animations run, the database is opened and the first page of tasks is loaded in the background.
      *
      * The sequence consists of three steps:
      * 1. Fade in the app name and icon.
-     * 2. Fade in the tagline after a 2-second delay.
-     * 3. Transition to the MainActivity after a 3-second delay.
+     * 2. Fade in the tagline after a 1-second delay.
+     * 3. Transition to the MainActivity once the first page of tasks is loaded and at least 2 seconds have passed.
      *
      * @param savedInstanceState The saved instance state.
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        Trace.beginSection("SplashActivity.onCreate");
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
+        // Warm the database and load the first page while the splash is showing
+        pendingPrefetch = TaskRepository.getInstance(this).prefetchFirstPage(MainActivity.PAGE_SIZE,
+                new TaskRow.Factory(this), new TaskRepository.Callback<TaskTimeline.Page<TaskRow>>() {
+                    @Override
+                    public void onComplete(TaskTimeline.Page<TaskRow> page) {
+                        onDataReady();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        onDataReady(); // MainActivity loads the list itself
+                    }
+                });
+
         // Initialize views
         TextView appName = findViewById(R.id.appName);
         ImageView icon = findViewById(R.id.icon);
@@ -43,16 +74,48 @@ public class SplashActivity extends AppCompatActivity {
         appName.startAnimation(fadeIn);
         icon.startAnimation(fadeIn);
 
-        // Step 2: After 2 seconds, fade in the tagline
-        new Handler().postDelayed(() -> {
+        // Step 2: After 1 second, fade in the tagline
+        handler.postDelayed(() -> {
             tagline.setVisibility(View.VISIBLE);
             tagline.startAnimation(fadeIn);
-        }, 2000); // 1.5 seconds delay
+        }, TAGLINE_DELAY_MILLIS);
+
+        // Step 3: Transition to MainActivity once the animation has played and the data is loaded
+        handler.postDelayed(onAnimationReady, MIN_SPLASH_MILLIS);
+        Trace.endSection();
+    }
+
+    /**
+     * Called when the activity is destroyed.
+     *
+     * Drops the pending animation steps and the prefetch if the user left before the transition.
+     */
+    @Override
+    protected void onDestroy() {
+        handler.removeCallbacksAndMessages(null);
+        if (pendingPrefetch != null) {
+            pendingPrefetch.cancel(true);
+        }
+        super.onDestroy();
+    }
 
-        // Step 3: After 3 seconds, transition to MainActivity
-        new Handler().postDelayed(() -> {
-            startActivity(new Intent(SplashActivity.this, MainActivity.class));
-            finish(); // Close the splash activity
-        }, 3000);
+    /**
+     * Called on the main thread when the first page of tasks has been loaded, or failed to load.
+     */
+    private void onDataReady() {
+        pendingPrefetch = null;
+        dataReady = true;
+        startMainActivityWhenReady();
+    }
+
+    /**
+     * Starts MainActivity once both the minimum animation time has passed and the first page is ready.
+     */
+    private void startMainActivityWhenReady() {
+        if (!animationReady || !dataReady || isFinishing()) {
+            return;
+        }
+        startActivity(new Intent(SplashActivity.this, MainActivity.class));
+        finish(); // Close the splash activity
     }
-}
\ No newline at end of file
+}
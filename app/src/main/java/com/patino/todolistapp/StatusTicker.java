@@ -0,0 +1,129 @@
+package com.patino.todolistapp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the status shown by the task list in step with the clock.
+ *
+ * A task changes status at most twice: when it enters the last 10 minutes before its time, and when its time passes.
+ * The ticker keeps the next transition of each displayed row in a priority queue, sleeps until the earliest
+ * one, and then sends a status payload update for only the rows whose status changed. Nothing runs between
+ * transitions, and rows that did not change are never rebound. Rows are never modified: the adapter works out the
+ * status when it binds the row, so the ticker only tells it when to bind again.
+ */
+@MainThread
+public class StatusTicker implements TaskAdapter.OnListChangedListener, Runnable {
+    private final TaskAdapter adapter;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final PriorityQueue<Transition> transitions = new PriorityQueue<>();
+    private List<TaskRow> rows = Collections.emptyList();
+    private boolean running;
+    private long shownAt = System.currentTimeMillis(); // The displayed statuses are up to date as of this time
+
+    // Class Constructor
+    public StatusTicker(TaskAdapter adapter) {
+        this.adapter = adapter;
+        adapter.setOnListChangedListener(this);
+    }
+
+    /**
+     * Starts following the clock, first catching up on any transition that happened while the ticker was stopped.
+     */
+    public void start() {
+        running = true;
+        run();
+    }
+
+    /**
+     * Stops waking up for transitions, for instance while the list is not visible.
+     */
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(this);
+    }
+
+    /**
+     * Called when the adapter displays a new list.
+     *
+     * Positions in the queue refer to the displayed list, so the queue is rebuilt from the new rows, starting from the
+     * time the statuses were last brought up to date. Rows the differ kept were bound back then and are caught up
+     * right away if one of their transitions has passed since.
+     *
+     * @param rows The rows that are displayed now.
+     */
+    @Override
+    public void onListChanged(List<TaskRow> rows) {
+        this.rows = rows;
+        transitions.clear();
+        for (int position = 0; position < rows.size(); position++) {
+            enqueueNextTransition(position, shownAt);
+        }
+        if (running) {
+            run();
+        }
+    }
+
+    /**
+     * Applies every transition that is due and sleeps until the next one.
+     */
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        while (!transitions.isEmpty() && transitions.peek().time <= now) {
+            int position = transitions.poll().position;
+            adapter.notifyItemChanged(position, TaskAdapter.PAYLOAD_STATUS);
+            enqueueNextTransition(position, now);
+        }
+        shownAt = now;
+        scheduleNext(now);
+    }
+
+    /**
+     * Queues the next status change after a time of the row at a position, unless it is overdue by then or archived.
+     */
+    private void enqueueNextTransition(int position, long after) {
+        TaskRow row = rows.get(position);
+        if (!row.followsClock()) {
+            return;
+        }
+        long transitionTime = TaskStatus.nextTransition(row.getTask().getTimestamp(), after);
+        if (transitionTime != TaskStatus.NO_TRANSITION) {
+            transitions.add(new Transition(transitionTime, position));
+        }
+    }
+
+    /**
+     * Replaces the pending wake-up with one at the earliest queued transition, if there is any.
+     */
+    private void scheduleNext(long now) {
+        handler.removeCallbacks(this);
+        if (running && !transitions.isEmpty()) {
+            handler.postDelayed(this, transitions.peek().time - now);
+        }
+    }
+
+    /**
+     * The time at which the row at a position changes status.
+     */
+    private static class Transition implements Comparable<Transition> {
+        final long time;
+        final int position;
+
+        Transition(long time, int position) {
+            this.time = time;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(Transition other) {
+            return Long.compare(time, other.time);
+        }
+    }
+}
@@ -7,26 +7,65 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
-import androidx.core.content.ContextCompat;
+import androidx.annotation.Nullable;
+import androidx.core.util.ObjectsCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Locale;
 
-public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
-    private List<Task> taskList;
-    private DatabaseHelper databaseHelper;
+public class TaskAdapter extends ListAdapter<TaskRow, TaskAdapter.TaskViewHolder> {
+    // Payload for rows whose status changed while the rest of the row stayed the same
+    static final Object PAYLOAD_STATUS = new Object();
+
+    private static final Metrics.Histogram BIND_LATENCY = Metrics.histogram("adapter.bind");
+    private static final Metrics.Histogram BIND_STATUS_LATENCY = Metrics.histogram("adapter.bindStatus");
+
     private OnTaskLongClickListener longClickListener; // Interface for long-click listener
+    private OnListChangedListener listChangedListener;
+
+    /**
+     * Tells the list differ, which runs on a background thread, how to match rows between two lists.
+     *
+     * Items are the same task when their IDs match, and only need rebinding when a displayed field changed. The
+     * occurrences of a recurring task all share the negated series ID, so they are told apart by their time too.
+     */
+    private static final DiffUtil.ItemCallback<TaskRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<TaskRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TaskRow oldRow, @NonNull TaskRow newRow) {
+            Task oldTask = oldRow.getTask();
+            Task newTask = newRow.getTask();
+            return oldTask.getId() == newTask.getId()
+                    && (!TaskSeries.isOccurrenceId(oldTask.getId()) || oldTask.getTimestamp() == newTask.getTimestamp());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull TaskRow oldRow, @NonNull TaskRow newRow) {
+            Task oldTask = oldRow.getTask();
+            Task newTask = newRow.getTask();
+            return oldTask.getTimestamp() == newTask.getTimestamp()
+                    && oldRow.followsClock() == newRow.followsClock()
+                    && oldRow.getStatus(0) == newRow.getStatus(0) // Rows with the same time match at any time
+                    && ObjectsCompat.equals(oldTask.getTitle(), newTask.getTitle())
+                    && ObjectsCompat.equals(oldTask.getDescription(), newTask.getDescription());
+        }
+    };
 
     // Interface for long-click listener
     public interface OnTaskLongClickListener {
         void onTaskLongClick(Task task);
     }
 
+    // Interface for listeners that track the displayed rows
+    public interface OnListChangedListener {
+        void onListChanged(List<TaskRow> rows);
+    }
+
     // Class Constructor
-    public TaskAdapter(List<Task> taskList, DatabaseHelper databaseHelper, OnTaskLongClickListener longClickListener) {
-        this.taskList = taskList;
-        this.databaseHelper = databaseHelper;
+    public TaskAdapter(OnTaskLongClickListener longClickListener) {
+        super(DIFF_CALLBACK);
         this.longClickListener = longClickListener; // Initialize the listener
     }
 
@@ -35,6 +74,9 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
      *
      * Inflates the task item layout and returns a new TaskViewHolder instance.
      *
+     * Sets a long-click listener on the itemView once, when the holder is created; it looks up the task at the
+     * holder's current position, so it never needs to be replaced when the holder is rebound.
+     *
      * @param parent The ViewGroup into which the new view will be added after it is bound to an adapter position.
      * @param viewType The view type of the new view.
      * @return A new TaskViewHolder instance.
@@ -44,76 +86,101 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
     public TaskViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         // Inflate the task item layout
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.task_item, parent, false);
-        return new TaskViewHolder(view);
+        TaskViewHolder holder = new TaskViewHolder(view);
+
+        // Set long-click listener
+        view.setOnLongClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                longClickListener.onTaskLongClick(getItem(position).getTask());
+            }
+            return true;
+        });
+        return holder;
     }
 
     /**
-     * Binds the TaskViewHolder instance to the task data at the specified position.
-     *
-     * Retrieves the task data from the taskList and updates the views in the TaskViewHolder instance.
+     * Binds the TaskViewHolder instance to the row at the specified position.
      *
-     * Also, updates the visibility and styles of the views based on the task's timestamp and the current time.
-     *
-     * Sets a long-click listener on the itemView to handle long clicks on the task item.
+     * Copies the precomputed values of the TaskRow (formatted date and resolved title colors) into the views, with the
+     * status as of now, so binding allocates nothing once the holders exist.
      *
      * @param holder The TaskViewHolder instance to bind the data to.
-     * @param position The position of the task data in the taskList.
+     * @param position The position of the row in the current list.
      */
     @Override
     public void onBindViewHolder(@NonNull TaskViewHolder holder, int position) {
-        Task task = taskList.get(position);
+        long start = Metrics.startTimer();
+        TaskRow row = getItem(position);
+        Task task = row.getTask();
         holder.title.setText(task.getTitle());
         holder.description.setText(task.getDescription());
-        holder.dateTime.setText(dateFormat.format(task.getTimestamp()));
-
-        long currentTime = System.currentTimeMillis();
-        long taskTime = task.getTimestamp();
-        long timeDifference = taskTime - currentTime;
-
-        // Reset visibility and styles
-        holder.iconWarning.setVisibility(View.GONE);
-        holder.iconClose.setVisibility(View.GONE);
-        holder.iconOntime.setVisibility(View.GONE);
-        holder.title.setPaintFlags(holder.title.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG)); // Remove strikethrough
-        holder.title.setTextColor(ContextCompat.getColor(holder.itemView.getContext(), android.R.color.black)); // Reset text color
-
-        if (timeDifference <= 0) {
-            // Task time has passed
-            holder.iconClose.setVisibility(View.VISIBLE);
-            holder.title.setPaintFlags(holder.title.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG); // Add strikethrough
-            holder.title.setTextColor(ContextCompat.getColor(holder.itemView.getContext(), android.R.color.holo_red_dark)); // Red text
-        } else if (timeDifference <= 10 * 60 * 1000) {
-            // 10 minutes or less remaining
-            holder.iconWarning.setVisibility(View.VISIBLE);
-            holder.title.setTextColor(ContextCompat.getColor(holder.itemView.getContext(), android.R.color.holo_orange_dark)); // Yellow text
-        }else{
-            holder.iconOntime.setVisibility(View.VISIBLE);
-            holder.title.setTextColor(ContextCompat.getColor(holder.itemView.getContext(), android.R.color.holo_green_dark)); // Green text
+        holder.dateTime.setText(row.getFormattedDate());
+        bindStatus(holder, row);
+        BIND_LATENCY.stopTimer(start);
+    }
+
+    /**
+     * Binds the TaskViewHolder instance to the row at the specified position, using payloads when possible.
+     *
+     * When the only change is a PAYLOAD_STATUS from StatusTicker, just the status icons and title style are updated.
+     *
+     * @param holder The TaskViewHolder instance to bind the data to.
+     * @param position The position of the row in the current list.
+     * @param payloads The payloads of the pending partial updates, or an empty list for a full bind.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull TaskViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
         }
+        for (int i = 0; i < payloads.size(); i++) {
+            if (payloads.get(i) != PAYLOAD_STATUS) {
+                onBindViewHolder(holder, position); // Unknown change, rebind everything
+                return;
+            }
+        }
+        long start = Metrics.startTimer();
+        bindStatus(holder, getItem(position));
+        BIND_STATUS_LATENCY.stopTimer(start);
+    }
 
+    /**
+     * Shows the status icon of the row as of now and styles its title accordingly.
+     */
+    private static void bindStatus(TaskViewHolder holder, TaskRow row) {
+        int status = row.getStatus(System.currentTimeMillis());
+        holder.iconClose.setVisibility(status == TaskStatus.OVERDUE ? View.VISIBLE : View.GONE); // Task time has passed
+        holder.iconWarning.setVisibility(status == TaskStatus.DUE_SOON ? View.VISIBLE : View.GONE); // 10 minutes or less remaining
+        holder.iconOntime.setVisibility(status == TaskStatus.ON_TIME ? View.VISIBLE : View.GONE);
+        int paintFlags = holder.title.getPaintFlags();
+        holder.title.setPaintFlags(status == TaskStatus.OVERDUE
+                ? paintFlags | Paint.STRIKE_THRU_TEXT_FLAG // Add strikethrough
+                : paintFlags & ~Paint.STRIKE_THRU_TEXT_FLAG); // Remove strikethrough
+        holder.title.setTextColor(row.getTitleColor(status));
+    }
 
-        // Set long-click listener
-        holder.itemView.setOnLongClickListener(new View.OnLongClickListener() {
-            @Override
-            public boolean onLongClick(View v) {
-                int position = holder.getAdapterPosition();
-                if (position != RecyclerView.NO_POSITION) {
-                    Task task = taskList.get(position);
-                    longClickListener.onTaskLongClick(task);
-                }
-                return true;
-            }
-        });
+    /**
+     * Sets the listener that is told about every list the adapter displays.
+     *
+     * @param listChangedListener The listener, or null to remove it.
+     */
+    public void setOnListChangedListener(@Nullable OnListChangedListener listChangedListener) {
+        this.listChangedListener = listChangedListener;
     }
 
     /**
-     * Returns the number of items in the taskList.
+     * Called when the displayed list changed, after the updates were dispatched.
      *
-     * @return The number of items in the taskList.
+     * @param previousList The list that was displayed before.
+     * @param currentList The list that is displayed now.
      */
     @Override
-    public int getItemCount() {
-        return taskList.size();
+    public void onCurrentListChanged(@NonNull List<TaskRow> previousList, @NonNull List<TaskRow> currentList) {
+        if (listChangedListener != null) {
+            listChangedListener.onListChanged(currentList);
+        }
     }
 
     /**
@@ -123,19 +190,56 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
      * @return The Task at the specified position.
      */
     public Task getTaskAt(int position) {
-        return taskList.get(position);
+        return getItem(position).getTask();
     }
 
     /**
-     * Removes the Task at the specified position from the task list.
+     * Appends a page of rows to the end of the task list.
      *
-     * Notifies the adapter that an item has been removed, triggering a layout update.
+     * Used by the paged list in MainActivity, which loads further pages as the user scrolls instead of
+     * handing the adapter every task at once.
      *
-     * @param position The position of the Task to remove.
+     * @param rows The rows to append, already ordered after the current last row.
+     * @param commitCallback Run once the new list is displayed, or null.
      */
-    public void removeTask(int position) {
-        taskList.remove(position);
-        notifyItemRemoved(position);
+    public void appendRows(List<TaskRow> rows, @Nullable Runnable commitCallback) {
+        List<TaskRow> newList = new ArrayList<>(getCurrentList().size() + rows.size());
+        newList.addAll(getCurrentList());
+        newList.addAll(rows);
+        submitList(newList, commitCallback);
+    }
+
+    /**
+     * Removes and inserts rows in the time-ordered task list without reloading it.
+     *
+     * Each inserted row goes where its time and ID sort to, so the differ dispatches only the moves, removals and
+     * insertions of the rows that changed.
+     *
+     * @param removedIds The IDs of the stored tasks whose rows are removed.
+     * @param rows The rows to insert.
+     * @param commitCallback Run once the new list is displayed, or null.
+     */
+    public void updateRows(Collection<Integer> removedIds, List<TaskRow> rows, @Nullable Runnable commitCallback) {
+        List<TaskRow> newList = new ArrayList<>(getCurrentList().size() + rows.size());
+        for (TaskRow row : getCurrentList()) {
+            if (!removedIds.contains(row.getTask().getId())) {
+                newList.add(row);
+            }
+        }
+        for (TaskRow row : rows) {
+            Task task = row.getTask();
+            int index = newList.size();
+            while (index > 0 && sortsAfter(newList.get(index - 1).getTask(), task)) {
+                index--;
+            }
+            newList.add(index, row);
+        }
+        submitList(newList, commitCallback);
+    }
+
+    private static boolean sortsAfter(Task task, Task other) {
+        return task.getTimestamp() > other.getTimestamp()
+                || task.getTimestamp() == other.getTimestamp() && task.getId() > other.getId();
     }
     /**
      * A ViewHolder class that represents a single task item in the RecyclerView.
@@ -164,7 +268,4 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
 
         }
     }
-
-    // Date formatter for displaying the task timestamp
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy - HH:mm", Locale.getDefault());
-}
\ No newline at end of file
+}
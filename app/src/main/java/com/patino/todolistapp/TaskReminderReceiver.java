@@ -1,26 +1,23 @@
 package com.patino.todolistapp;
 
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
 import android.os.Vibrator;
-import androidx.core.app.NotificationCompat;
 
 public class TaskReminderReceiver extends BroadcastReceiver {
 
-    private static final String CHANNEL_ID = "task_notification_channel";
-    private static final int NOTIFICATION_ID = 1;
-
     /**
      * Called when the BroadcastReceiver receives an Intent.
      *
-     * Retrieves the task details from the Intent and creates a notification.
+     * Retrieves the time of the task the alarm was armed for, then loads every task due between that time and the
+     * end of the current reminder window, extended by ReminderScheduler.COALESCE_WINDOW_MILLIS. Loading the range rather
+     * than a single task also covers tasks sharing the same timestamp and alarms delivered late, and batches reminders
+     * that would otherwise fire a few seconds apart into one grouped notification update. The alarm is then re-armed
+     * for the first task after the latest one notified, which may still fall inside the window if it was added
+     * after the window was read.
      *
-     * Also, vibrates the device if it has a vibrator.
+     * Also, vibrates the device once if it has a vibrator.
      *
      * @param context The Context in which the receiver is running.
      * @param intent The Intent being received.
@@ -28,51 +25,52 @@ public class TaskReminderReceiver extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
         // Get task details from the intent
-        String taskTitle = intent.getStringExtra("taskTitle");
         long taskTime = intent.getLongExtra("taskTime", 0);
+        long windowEnd = System.currentTimeMillis() + ReminderScheduler.REMINDER_OFFSET_MILLIS
+                + ReminderScheduler.COALESCE_WINDOW_MILLIS;
 
-        // Create the notification
-        createNotification(context, taskTitle, taskTime);
+        // Keep the receiver alive while the due tasks are loaded and the next alarm is armed
+        PendingResult pendingResult = goAsync();
+        TaskRepository taskRepository = TaskRepository.getInstance(context);
+        long windowStart = taskTime > 0 ? taskTime : windowEnd; // Without a task time, only tasks due right now count
+        taskRepository.getTasksBetween(windowStart, windowEnd + 1, new TaskRepository.Callback<TaskSnapshot>() {
+            @Override
+            public void onComplete(TaskSnapshot tasks) {
+                // Create the notifications and make sure these tasks are not reminded again; the tasks are ordered
+                // by timestamp, so the last one is the latest notified
+                ReminderNotifier.notifyTasksDue(context, tasks);
+                if (!tasks.isEmpty()) {
+                    ReminderScheduler.markNotifiedUntil(context, tasks.getTimestamp(tasks.size() - 1));
+                }
 
-        // Vibrate
-        Vibrator vibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
-        if (vibrator != null && vibrator.hasVibrator()) {
-            vibrator.vibrate(500); // Vibrate for 500ms
-        }
-    }
-    /**
-     * Creates a notification for a task reminder.
-     *
-     * Creates a notification channel for Android 8.0 and above, and then builds the notification using the NotificationCompat.Builder.
-     *
-     * Sets the notification title, text, small icon, and priority, and then shows the notification using the NotificationManager.
-     *
-     * @param context The Context in which the notification will be shown.
-     * @param taskTitle The title of the task being reminded.
-     * @param taskTime The time at which the task is scheduled.
-     */
-    private void createNotification(Context context, String taskTitle, long taskTime) {
-        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+                // Vibrate
+                Vibrator vibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+                if (!tasks.isEmpty() && vibrator != null && vibrator.hasVibrator()) {
+                    vibrator.vibrate(500); // Vibrate for 500ms
+                }
+
+                rearm();
+            }
 
-        // Create a notification channel for Android 8.0 and above
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                    CHANNEL_ID,
-                    "Task Notifications",
-                    NotificationManager.IMPORTANCE_HIGH
-            );
-            notificationManager.createNotificationChannel(channel);
-        }
+            @Override
+            public void onError(Exception e) {
+                rearm();
+            }
 
-        // Build the notification
-        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
-                .setContentTitle("Recordatorio de tarea")
-                .setContentText("Tu tarea '" + taskTitle + "' está a punto de comenzar.")
-                .setSmallIcon(android.R.drawable.ic_dialog_info)
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                .build();
+            // Arms the next reminder, then lets the broadcast finish
+            private void rearm() {
+                taskRepository.refreshReminders(new TaskRepository.Callback<Void>() {
+                    @Override
+                    public void onComplete(Void result) {
+                        pendingResult.finish();
+                    }
 
-        // Show the notification
-        notificationManager.notify(NOTIFICATION_ID, notification);
+                    @Override
+                    public void onError(Exception e) {
+                        pendingResult.finish();
+                    }
+                });
+            }
+        });
     }
-}
\ No newline at end of file
+}
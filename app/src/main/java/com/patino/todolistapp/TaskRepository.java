@@ -0,0 +1,870 @@
+package com.patino.todolistapp;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.Trace;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TaskRepository {
+    private static final String TAG = "TaskRepository";
+    private static final int READ_THREAD_COUNT = 2;
+    private static final String FIRST_PAGE_FILE_NAME = "task_list.page";
+    private static final long FLUSH_DELAY_MILLIS = 4000; // Pause after the last queued change before it is written
+    // Tasks stay in the list, struck through, for this long after their time before they are archived
+    static final long ARCHIVE_AFTER_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int ARCHIVE_BATCH_SIZE = 500;
+    private static final int VACUUM_MAX_PAGES = 1024; // Free pages returned to the file system per compaction
+
+    private static TaskRepository instance;
+
+    private final Context appContext;
+    private final DatabaseHelper databaseHelper;
+    private final ExecutorService writeExecutor; // Single thread so writes are applied in submission order
+    private final ExecutorService readExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final File firstPageFile; // Binary copy of the list's first page, shown before the database is opened
+    private final AtomicBoolean firstPageRewritePending = new AtomicBoolean();
+    private TaskTimeline.Page<TaskRow> prefetchedFirstPage; // Handed from SplashActivity to MainActivity, main thread only
+
+    // Write-behind state, main thread only: changes already shown but not yet committed to the database
+    private final PendingChanges queuedChanges = new PendingChanges();
+    private final List<PendingChanges> writingChanges = new ArrayList<>(); // Drained batches still being written
+    private final Runnable flushRunnable = this::flushQueuedChanges;
+    private final List<TaskObserver> observers = new ArrayList<>(); // Main thread only
+    private int startedActivities; // Main thread only; the queue is written when this drops to zero
+
+    // Interface used to deliver results back on the main thread
+    public interface Callback<T> {
+        void onComplete(T result);
+
+        // Called instead of onComplete when the operation failed; the failure has already been logged
+        default void onError(Exception e) {
+        }
+    }
+
+    // Interface used to tell screens, and anything else showing tasks, what a write changed
+    public interface TaskObserver {
+        void onTasksChanged(TaskChangeSet changes);
+    }
+
+    // Class Constructor
+    private TaskRepository(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.databaseHelper = DatabaseHelper.getInstance(context);
+        this.writeExecutor = Executors.newSingleThreadExecutor();
+        this.readExecutor = Executors.newFixedThreadPool(READ_THREAD_COUNT);
+        this.firstPageFile = new File(appContext.getCacheDir(), FIRST_PAGE_FILE_NAME);
+
+        // Metrics are recorded in debuggable builds only; release builds pay a single volatile read per call site
+        Metrics.setEnabled((appContext.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0);
+
+        // Write the queued changes as soon as the app leaves the screen, where its process may be killed at any time
+        if (appContext instanceof Application) {
+            ((Application) appContext).registerActivityLifecycleCallbacks(new VisibilityTracker());
+        }
+    }
+
+    /**
+     * Returns the process-wide repository instance, creating it on first use.
+     *
+     * The repository owns the background executors, so sharing one instance keeps the number of
+     * database threads bounded no matter how many activities or receivers use it.
+     *
+     * @param context Any context; only the application context is retained.
+     * @return The shared TaskRepository instance.
+     */
+    public static synchronized TaskRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new TaskRepository(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Registers an observer that is told, on the main thread, about every write made through the repository, by any
+     * screen or receiver, and about every queued edit and deletion as soon as it is queued.
+     *
+     * @param observer The observer; it must be removed with removeObserver() when it goes away.
+     */
+    @MainThread
+    public void addObserver(TaskObserver observer) {
+        observers.add(observer);
+    }
+
+    @MainThread
+    public void removeObserver(TaskObserver observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Loads the first page of the task list while the splash screen is showing.
+     *
+     * The page is read from the first page file when there is a valid one, which takes a memory map rather than a
+     * query; the database is still opened in the background, running any pending migration, so the connection is
+     * warm by the time MainActivity needs it. Without a valid file the page is loaded from the database, and the
+     * file is written for the next start. The page is kept until MainActivity takes it with takePrefetchedFirstPage().
+     *
+     * @param limit The maximum number of rows to load.
+     * @param rowFactory The factory used to build the rows.
+     * @param callback Notified on the main thread once the page is ready, or when loading it failed.
+     * @return A Future that can be used to cancel the load.
+     */
+    @MainThread
+    public Future<?> prefetchFirstPage(int limit, TaskRow.Factory rowFactory,
+                                       Callback<TaskTimeline.Page<TaskRow>> callback) {
+        TaskTimeline.Page<TaskRow> cachedPage = readCachedFirstPage(limit, rowFactory);
+        List<PendingChanges> changes = unwrittenChanges();
+        prefetchedFirstPage = cachedPage;
+        if (cachedPage != null) {
+            mainHandler.post(() -> callback.onComplete(cachedPage));
+            return submit(readExecutor, () -> {
+                databaseHelper.getReadableDatabase();
+                return null;
+            }, null);
+        }
+        return submit(readExecutor, () -> {
+            Trace.beginSection("TaskRepository.prefetchFirstPage");
+            try {
+                TaskTimeline.Page<Task> page = loadPage(TaskTimeline.Position.START, limit);
+                scheduleFirstPageFileWrite(limit);
+                return page.withItems(rowFactory.createRows(
+                        applyPageChanges(changes, page, TaskTimeline.Position.START)));
+            } finally {
+                Trace.endSection();
+            }
+        }, new Callback<TaskTimeline.Page<TaskRow>>() {
+            @Override
+            public void onComplete(TaskTimeline.Page<TaskRow> page) {
+                prefetchedFirstPage = page;
+                callback.onComplete(page);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Takes the page loaded by prefetchFirstPage(), so it is only ever used once.
+     *
+     * @return The prefetched page, or null if there is none (the prefetch failed, or it was already taken).
+     */
+    @MainThread
+    @Nullable
+    public TaskTimeline.Page<TaskRow> takePrefetchedFirstPage() {
+        TaskTimeline.Page<TaskRow> page = prefetchedFirstPage;
+        prefetchedFirstPage = null;
+        return page;
+    }
+
+    /**
+     * Reads the first page of the task list from the first page file, without touching the database.
+     *
+     * The file is rewritten after every write made through the repository, and deleted before the write starts,
+     * so a page read from it is never older than the database. A corrupt file, or one written by another
+     * format version, is deleted and null is returned so the caller loads the page from the database instead. A file
+     * saved more than ARCHIVE_AFTER_MILLIS ago is not used either, since by now it may show occurrences of recurring
+     * tasks that the list leaves out.
+     *
+     * @param limit The maximum number of rows on the page.
+     * @param rowFactory The factory used to build the rows.
+     * @return The page, or null if there is no valid file for this limit.
+     */
+    @MainThread
+    @Nullable
+    public TaskTimeline.Page<TaskRow> readCachedFirstPage(int limit, TaskRow.Factory rowFactory) {
+        Trace.beginSection("TaskRepository.readCachedFirstPage");
+        try {
+            TaskTimeline.Page<Task> page = TaskPageFile.read(firstPageFile, limit);
+            if (page != null && page.getNext().getEarliestOccurrence() < earliestOccurrence() - ARCHIVE_AFTER_MILLIS) {
+                return null;
+            }
+            return page == null ? null
+                    : page.withItems(rowFactory.createRows(
+                            applyPageChanges(unwrittenChanges(), page, TaskTimeline.Position.START)));
+        } catch (IOException e) {
+            Log.w(TAG, "Ignoring unreadable first page file", e);
+            firstPageFile.delete();
+            return null;
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Loads a single task, with its full description, on a background thread.
+     *
+     * @param id The ID of the task.
+     * @param callback Receives the task, or null if it no longer exists, on the main thread.
+     * @return A Future that can be used to cancel the load.
+     */
+    public Future<?> getTask(int id, Callback<Task> callback) {
+        List<PendingChanges> changes = unwrittenChanges();
+        return submit(readExecutor, () -> {
+            Task task = databaseHelper.getTask(id);
+            List<Task> tasks = applyChanges(changes,
+                    task != null ? Collections.singletonList(task) : Collections.<Task>emptyList());
+            return tasks.isEmpty() ? null : tasks.get(0);
+        }, callback);
+    }
+
+    /**
+     * Loads a column-oriented snapshot of all tasks on a background thread.
+     *
+     * @param callback Receives the snapshot, ordered by timestamp and ID, on the main thread.
+     * @return A Future that can be used to cancel the load.
+     */
+    public Future<?> getTaskSnapshot(Callback<TaskSnapshot> callback) {
+        return submit(readExecutor, databaseHelper::getTaskSnapshot, callback);
+    }
+
+    /**
+     * Loads one page of the task list on a background thread and builds their display rows there too.
+     *
+     * The page holds stored tasks and the occurrences of recurring tasks that fall among them; only those
+     * occurrences are computed, however long the series run.
+     *
+     * @param position Where the previous page ended, or TaskTimeline.Position.START to load the first page.
+     * @param limit The maximum number of rows to load.
+     * @param rowFactory The factory used to build the rows.
+     * @param callback Receives the page, ordered by timestamp and id, on the main thread.
+     * @return A Future that can be used to cancel the load.
+     */
+    public Future<?> getTaskRowsPage(TaskTimeline.Position position, int limit, TaskRow.Factory rowFactory,
+                                     Callback<TaskTimeline.Page<TaskRow>> callback) {
+        List<PendingChanges> changes = unwrittenChanges();
+        return submit(readExecutor, () -> loadRowsPage(position, limit, rowFactory, changes), callback);
+    }
+
+    /**
+     * Loads the tasks, and the occurrences of recurring tasks, that fall within a time range on a background thread.
+     *
+     * @param startInclusive The start of the range, inclusive.
+     * @param endExclusive The end of the range, exclusive.
+     * @param callback Receives a snapshot of the tasks, ordered by timestamp, on the main thread.
+     * @return A Future that can be used to cancel the load.
+     */
+    public Future<?> getTasksBetween(long startInclusive, long endExclusive, Callback<TaskSnapshot> callback) {
+        return submit(readExecutor, () -> TaskTimeline.between(
+                databaseHelper.getTasksBetween(startInclusive, endExclusive),
+                databaseHelper.getActiveSeries(startInclusive - 1), startInclusive, endExclusive,
+                TimeZone.getDefault()), callback);
+    }
+
+    /**
+     * Reconciles the reminder alarms with the database on the background write thread.
+     *
+     * Every write made through the repository already does this, so callers only need it when the alarms may
+     * be out of date, for example at startup or after the armed reminder has fired. When nothing changed, no
+     * alarm is touched.
+     *
+     * @param callback Invoked on the main thread once the alarms are reconciled, or null.
+     * @return A Future tracking the work.
+     */
+    public Future<?> refreshReminders(@Nullable Callback<Void> callback) {
+        return submit(writeExecutor, () -> {
+            ReminderScheduler.reconcileReminders(appContext);
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Runs a ranked full-text search for one page of results on a background thread and builds their display rows.
+     *
+     * @param query The text typed by the user.
+     * @param limit The maximum number of tasks to load.
+     * @param offset The number of ranked results to skip.
+     * @param cancellationSignal Signal that aborts the query if it is still running, or null.
+     * @param rowFactory The factory used to build the rows.
+     * @param callback Receives the rows of the matching tasks on the main thread.
+     * @return A Future that can be used to cancel the search.
+     */
+    public Future<?> searchTaskRows(String query, int limit, int offset, @Nullable CancellationSignal cancellationSignal,
+                                    TaskRow.Factory rowFactory, Callback<List<TaskRow>> callback) {
+        List<PendingChanges> changes = unwrittenChanges();
+        return submit(readExecutor, () -> rowFactory.createRows(
+                applyChanges(changes, databaseHelper.searchTasks(query, limit, offset, cancellationSignal))), callback);
+    }
+
+    /**
+     * Re-arms every reminder from scratch on the background write thread.
+     *
+     * Used after a reboot, when the system has dropped all alarms and the reminder ledger no longer matches.
+     *
+     * @param callback Invoked on the main thread once the alarms are armed, or null.
+     * @return A Future tracking the work.
+     */
+    public Future<?> resetReminders(@Nullable Callback<Void> callback) {
+        return submit(writeExecutor, () -> {
+            ReminderScheduler.resetLedger(appContext);
+            ReminderScheduler.reconcileReminders(appContext);
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Queues an edit of a task, to be written with the other queued changes once they stop coming.
+     *
+     * Reads made through the repository show the edit right away. A later edit of the same task replaces it and
+     * a deletion drops it, so the task is written at most once.
+     *
+     * @param task The task with its new values.
+     */
+    @MainThread
+    public void queueUpdate(Task task) {
+        queuedChanges.update(task);
+        scheduleFlush();
+        dispatchChanges(TaskChangeSet.changed(task));
+    }
+
+    /**
+     * Queues the deletion of a task, to be written with the other queued changes once they stop coming.
+     *
+     * Until then the deletion can be undone with undoQueuedDeletes() without touching the database.
+     *
+     * @param task The task as it is shown.
+     */
+    @MainThread
+    public void queueDelete(Task task) {
+        queuedChanges.delete(task);
+        scheduleFlush();
+        dispatchChanges(TaskChangeSet.deleted(task.getId()));
+    }
+
+    /**
+     * Cancels the deletions queued since the last flush.
+     *
+     * @return The tasks that are no longer deleted, with any queued edit applied; empty if they were already written.
+     */
+    @MainThread
+    public List<Task> undoQueuedDeletes() {
+        List<Task> restored = queuedChanges.undoDeletes();
+        if (!restored.isEmpty()) {
+            dispatchChanges(TaskChangeSet.of(restored, Collections.<Integer>emptySet()));
+        }
+        return restored;
+    }
+
+    /**
+     * Returns the number of deletions that can still be undone.
+     */
+    @MainThread
+    public int getQueuedDeleteCount() {
+        return queuedChanges.getDeleteCount();
+    }
+
+    /**
+     * Writes every queued edit and deletion in a single transaction on the background write thread.
+     *
+     * Runs by itself FLUSH_DELAY_MILLIS after the last queued change, and before any other write so changes reach
+     * the database in the order they were made. It also runs when the last visible activity stops, so an edit
+     * queued by a screen that has already finished, such as EditTaskActivity, is not lost if the process is killed
+     * in the background. Observers were told about the changes when they were queued, so the write itself is only
+     * reported if it fails: observers reload, and a toast tells the user, since the screen that queued the changes
+     * may already be closed.
+     */
+    @MainThread
+    public void flushQueuedChanges() {
+        mainHandler.removeCallbacks(flushRunnable);
+        if (queuedChanges.isEmpty()) {
+            return;
+        }
+        PendingChanges batch = queuedChanges.drain();
+        writingChanges.add(batch);
+        submitDirectWrite(() -> {
+            databaseHelper.applyChanges(batch.getUpdates(), batch.getDeletedIds());
+            return null;
+        }, new Callback<Void>() {
+            @Override
+            public void onComplete(Void result) {
+                writingChanges.remove(batch);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                writingChanges.remove(batch); // Already logged; observers reload what the database holds
+                // The screen that queued the changes may be gone, so the failure is shown from here
+                Toast.makeText(appContext, "No se pudieron guardar los cambios", Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Inserts a new task on the background write thread.
+     *
+     * @param title The title of the task to add.
+     * @param description The description of the task to add.
+     * @param timestamp The timestamp of the task to add.
+     * @param callback Invoked on the main thread once the task is stored, or null.
+     * @return A Future tracking the write.
+     */
+    public Future<?> addTask(String title, String description, long timestamp, @Nullable Callback<Void> callback) {
+        return submitWrite(() -> {
+            int id = databaseHelper.addTask(title, description, timestamp);
+            publishChanges(TaskChangeSet.changed(new Task(id, title, description, timestamp)));
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Updates an existing task on the background write thread.
+     *
+     * @param id The ID of the task to update.
+     * @param title The new title of the task.
+     * @param description The new description of the task.
+     * @param timestamp The new timestamp of the task.
+     * @param callback Invoked on the main thread once the task is stored, or null.
+     * @return A Future tracking the write.
+     */
+    public Future<?> updateTask(int id, String title, String description, long timestamp, @Nullable Callback<Void> callback) {
+        return submitWrite(() -> {
+            databaseHelper.updateTask(id, title, description, timestamp);
+            publishChanges(TaskChangeSet.changed(new Task(id, title, description, timestamp)));
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Deletes a task on the background write thread.
+     *
+     * @param id The ID of the task to delete.
+     * @param callback Invoked on the main thread once the task is removed, or null.
+     * @return A Future tracking the write.
+     */
+    public Future<?> deleteTask(int id, @Nullable Callback<Void> callback) {
+        return submitWrite(() -> {
+            databaseHelper.deleteTask(id);
+            publishChanges(TaskChangeSet.deleted(id));
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Inserts several tasks in one transaction on the background write thread.
+     *
+     * @param tasks The tasks to add; their IDs are ignored.
+     * @param callback Invoked on the main thread once the batch is stored, or null.
+     * @return A Future tracking the write.
+     */
+    public Future<?> addTasks(Collection<Task> tasks, @Nullable Callback<Void> callback) {
+        return submitWrite(() -> {
+            databaseHelper.addTasks(tasks);
+            publishChanges(TaskChangeSet.ALL); // The new IDs are not known
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Updates several tasks in one transaction on the background write thread.
+     *
+     * @param tasks The tasks to update, matched by ID.
+     * @param callback Invoked on the main thread once the batch is stored, or null.
+     * @return A Future tracking the write.
+     */
+    public Future<?> updateTasks(Collection<Task> tasks, @Nullable Callback<Void> callback) {
+        return submitWrite(() -> {
+            databaseHelper.updateTasks(tasks);
+            publishChanges(TaskChangeSet.of(tasks, Collections.<Integer>emptySet()));
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Deletes several tasks in one transaction on the background write thread.
+     *
+     * @param ids The IDs of the tasks to delete.
+     * @param callback Invoked on the main thread once the tasks are removed, or null.
+     * @return A Future tracking the write.
+     */
+    public Future<?> deleteTasks(Collection<Integer> ids, @Nullable Callback<Void> callback) {
+        return submitWrite(() -> {
+            databaseHelper.deleteTasks(ids);
+            publishChanges(TaskChangeSet.of(Collections.<Task>emptyList(), ids));
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Inserts a new recurring task on the background write thread.
+     *
+     * @param title The title of every occurrence.
+     * @param description The description of every occurrence.
+     * @param startTime The time of the first occurrence.
+     * @param frequency TaskSeries.DAILY, WEEKLY or MONTHLY.
+     * @param interval The number of days, weeks or months between occurrences.
+     * @param count The number of occurrences, or TaskSeries.UNLIMITED.
+     * @param callback Invoked on the main thread once the series is stored, or null.
+     * @return A Future tracking the write.
+     */
+    public Future<?> addSeries(String title, String description, long startTime, int frequency, int interval, int count,
+                               @Nullable Callback<Void> callback) {
+        return submitWrite(() -> {
+            databaseHelper.addSeries(title, description, startTime, frequency, interval, TaskSeries.NO_END, count);
+            publishChanges(TaskChangeSet.SERIES);
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Deletes a recurring task, with all of its occurrences, on the background write thread.
+     *
+     * @param id The ID of the series to delete.
+     * @param callback Invoked on the main thread once the series is removed, or null.
+     * @return A Future tracking the write.
+     */
+    public Future<?> deleteSeries(int id, @Nullable Callback<Void> callback) {
+        return submitWrite(() -> {
+            databaseHelper.deleteSeries(id);
+            publishChanges(TaskChangeSet.SERIES);
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Marks a task done on the background write thread, moving it from the task list to the archive.
+     *
+     * @param id The ID of the task.
+     * @param callback Receives, on the main thread, whether the task was archived; false if it was already gone.
+     *                 Null is allowed.
+     * @return A Future tracking the write.
+     */
+    public Future<?> completeTask(int id, @Nullable Callback<Boolean> callback) {
+        return submitWrite(() -> {
+            boolean moved = databaseHelper.completeTask(id, System.currentTimeMillis());
+            if (moved) {
+                publishChanges(TaskChangeSet.deleted(id));
+            }
+            return moved;
+        }, callback);
+    }
+
+    /**
+     * Compacts the task list on the background write thread.
+     *
+     * Moves the tasks whose time passed more than ARCHIVE_AFTER_MILLIS ago to the archive, so the list queries and
+     * the reminder scheduler only ever walk the tasks still to do, then returns some of the space the moved rows
+     * leave behind in the database file.
+     *
+     * @param callback Receives the number of archived tasks on the main thread, or null.
+     * @return A Future tracking the write.
+     */
+    public Future<?> compactTasks(@Nullable Callback<Integer> callback) {
+        return submitWrite(() -> {
+            long now = System.currentTimeMillis();
+            List<Integer> archivedIds = databaseHelper.archiveTasksDueBefore(now - ARCHIVE_AFTER_MILLIS, now,
+                    ARCHIVE_BATCH_SIZE);
+            if (!archivedIds.isEmpty()) {
+                publishChanges(TaskChangeSet.of(Collections.<Task>emptyList(), archivedIds));
+            }
+            long freePages = databaseHelper.incrementalVacuum(VACUUM_MAX_PAGES);
+            Log.d(TAG, "Archived " + archivedIds.size() + " tasks, " + freePages + " free pages left");
+            return archivedIds.size();
+        }, callback);
+    }
+
+    /**
+     * Loads one page of the archive, most recent first, on a background thread.
+     *
+     * @param after The last archived task of the previous page, or null to load the first page.
+     * @param limit The maximum number of tasks to load.
+     * @param callback Receives the archived tasks on the main thread.
+     * @return A Future that can be used to cancel the load.
+     */
+    public Future<?> getArchivePage(@Nullable ArchivedTask after, int limit, Callback<List<ArchivedTask>> callback) {
+        return submit(readExecutor, () -> databaseHelper.getArchivePage(after, limit), callback);
+    }
+
+    /**
+     * Exports every task, archived and recurring ones included, to a file on a background thread, streaming rows from
+     * the database into it.
+     *
+     * @param uri The document to write, as returned by ACTION_CREATE_DOCUMENT; it is overwritten.
+     * @param format TaskTransfer.FORMAT_JSON or TaskTransfer.FORMAT_CSV.
+     * @param listener Notified on the main thread as rows are written, or null.
+     * @param callback Receives the number of rows written and the time it took on the main thread.
+     * @return A Future tracking the export.
+     */
+    public Future<?> exportTasks(Uri uri, int format, @Nullable TaskTransfer.ProgressListener listener,
+                                 Callback<TaskTransfer.Result> callback) {
+        return submit(readExecutor, () -> {
+            OutputStream output = appContext.getContentResolver().openOutputStream(uri, "wt");
+            if (output == null) {
+                throw new FileNotFoundException("Cannot open " + uri);
+            }
+            return TaskTransfer.exportTasks(databaseHelper, output, format, onMainThread(listener));
+        }, callback);
+    }
+
+    /**
+     * Imports the tasks of a file on the background write thread, committing them in batches as they are parsed.
+     *
+     * @param uri The document to read, as returned by ACTION_OPEN_DOCUMENT.
+     * @param format TaskTransfer.FORMAT_JSON or TaskTransfer.FORMAT_CSV.
+     * @param listener Notified on the main thread after every committed batch, or null.
+     * @param callback Receives the number of rows imported and the time it took on the main thread.
+     * @return A Future tracking the import.
+     */
+    public Future<?> importTasks(Uri uri, int format, @Nullable TaskTransfer.ProgressListener listener,
+                                 Callback<TaskTransfer.Result> callback) {
+        return submitWrite(() -> {
+            InputStream input = appContext.getContentResolver().openInputStream(uri);
+            if (input == null) {
+                throw new FileNotFoundException("Cannot open " + uri);
+            }
+            TaskTransfer.Result result = TaskTransfer.importTasks(databaseHelper, input, format, onMainThread(listener));
+            publishChanges(TaskChangeSet.ALL);
+            return result;
+        }, callback);
+    }
+
+    /**
+     * Wraps a progress listener so it is notified on the main thread.
+     */
+    @Nullable
+    private TaskTransfer.ProgressListener onMainThread(@Nullable TaskTransfer.ProgressListener listener) {
+        return listener == null ? null : rows -> mainHandler.post(() -> listener.onProgress(rows));
+    }
+
+    /**
+     * Reads one page of stored tasks, merges in the series occurrences that fall among them and builds the rows.
+     */
+    private TaskTimeline.Page<TaskRow> loadRowsPage(TaskTimeline.Position position, int limit,
+                                                    TaskRow.Factory rowFactory, List<PendingChanges> changes) {
+        TaskTimeline.Page<Task> page = loadPage(position, limit);
+        return page.withItems(rowFactory.createRows(applyPageChanges(changes, page, position)));
+    }
+
+    /**
+     * Reads one page of stored tasks and merges in the series occurrences that fall among them.
+     *
+     * The list starts at the occurrences of the last ARCHIVE_AFTER_MILLIS, like the stored tasks, which are moved to
+     * the archive after that long; older occurrences are never shown.
+     */
+    private TaskTimeline.Page<Task> loadPage(TaskTimeline.Position position, int limit) {
+        return loadPage(databaseHelper, position, limit);
+    }
+
+    @VisibleForTesting
+    static TaskTimeline.Page<Task> loadPage(DatabaseHelper databaseHelper, TaskTimeline.Position position, int limit) {
+        if (position == TaskTimeline.Position.START) {
+            position = TaskTimeline.Position.startingAt(earliestOccurrence());
+        }
+        Task lastOccurrence = position.getLastOccurrence();
+        // Series ending before the last occurrence already shown, or before the start of the list, have nothing left
+        long seriesAfter = lastOccurrence != null ? lastOccurrence.getTimestamp() - 1
+                : position.getEarliestOccurrence() != Long.MIN_VALUE ? position.getEarliestOccurrence() - 1
+                : Long.MIN_VALUE;
+        return TaskTimeline.mergePage(databaseHelper.getTasksPage(position.getLastTask(), limit),
+                limit, databaseHelper.getActiveSeries(seriesAfter), position, TimeZone.getDefault());
+    }
+
+    /**
+     * Returns the time of the earliest occurrence of a recurring task the list shows.
+     */
+    private static long earliestOccurrence() {
+        return System.currentTimeMillis() - ARCHIVE_AFTER_MILLIS;
+    }
+
+    /**
+     * Returns the changes a read must show that the database may not hold yet: the batches still being written,
+     * oldest first, then the queued changes. Taken on the main thread when the read is submitted.
+     */
+    @MainThread
+    private List<PendingChanges> unwrittenChanges() {
+        if (writingChanges.isEmpty() && queuedChanges.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<PendingChanges> changes = new ArrayList<>(writingChanges);
+        changes.add(queuedChanges.copy());
+        return changes;
+    }
+
+    private static List<Task> applyChanges(List<PendingChanges> changes, List<Task> tasks) {
+        for (PendingChanges change : changes) {
+            tasks = change.applyTo(tasks);
+        }
+        return tasks;
+    }
+
+    /**
+     * Applies the unwritten changes to a page of the list, moving edited tasks to the page their new time sorts in.
+     */
+    private static List<Task> applyPageChanges(List<PendingChanges> changes, TaskTimeline.Page<Task> page,
+                                               TaskTimeline.Position position) {
+        List<Task> tasks = page.getItems();
+        for (PendingChanges change : changes) {
+            tasks = change.applyToPage(tasks, position.getLastItem(), page.hasMore());
+        }
+        return tasks;
+    }
+
+    /**
+     * Tells the observers about a write, from the background thread that made it.
+     *
+     * The change set is posted before the write's own callback, so observers have refreshed by the time it runs.
+     */
+    private void publishChanges(TaskChangeSet changes) {
+        mainHandler.post(() -> dispatchChanges(changes));
+    }
+
+    @MainThread
+    private void dispatchChanges(TaskChangeSet changes) {
+        for (TaskObserver observer : new ArrayList<>(observers)) {
+            observer.onTasksChanged(changes);
+        }
+    }
+
+    /**
+     * Restarts the idle window after which the queued changes are written.
+     */
+    private void scheduleFlush() {
+        mainHandler.removeCallbacks(flushRunnable);
+        mainHandler.postDelayed(flushRunnable, FLUSH_DELAY_MILLIS);
+    }
+
+    /**
+     * Writes the queued changes, then runs a write after them. Called on the main thread.
+     */
+    private <T> Future<?> submitWrite(Callable<T> write, @Nullable Callback<T> callback) {
+        flushQueuedChanges();
+        return submitDirectWrite(write, callback);
+    }
+
+    /**
+     * Runs a write on the background write thread, then reconciles the reminders and refreshes the first page file.
+     *
+     * The file is deleted before the write starts, so if the process dies before it is rewritten the next start
+     * loads the list from the database rather than showing a page from before the write.
+     */
+    private <T> Future<?> submitDirectWrite(Callable<T> write, @Nullable Callback<T> callback) {
+        return submit(writeExecutor, () -> {
+            firstPageFile.delete();
+            try {
+                T result = write.call();
+                ReminderScheduler.reconcileReminders(appContext);
+                return result;
+            } catch (Exception e) {
+                publishChanges(TaskChangeSet.ALL); // Part of the write may have been committed, as with an import
+                throw e;
+            } finally {
+                scheduleFirstPageFileWrite(MainActivity.PAGE_SIZE);
+            }
+        }, callback);
+    }
+
+    /**
+     * Queues a rewrite of the first page file behind the writes already queued.
+     *
+     * A burst of writes queued together shares a single rewrite, made once the last of them has been applied.
+     */
+    private void scheduleFirstPageFileWrite(int limit) {
+        if (!firstPageRewritePending.compareAndSet(false, true)) {
+            return;
+        }
+        writeExecutor.execute(() -> {
+            firstPageRewritePending.set(false);
+            try {
+                TaskPageFile.write(firstPageFile, loadPage(TaskTimeline.Position.START, limit), limit);
+            } catch (Exception e) {
+                Log.w(TAG, "Could not write the first page file", e);
+                firstPageFile.delete();
+            }
+        });
+    }
+
+    /**
+     * Runs the given work on an executor and posts its result to the main thread.
+     *
+     * Failures are logged and reported through the callback's onError instead of onComplete.
+     */
+    private <T> Future<?> submit(ExecutorService executor, Callable<T> work, @Nullable Callback<T> callback) {
+        return executor.submit(() -> {
+            T result;
+            try {
+                result = work.call();
+            } catch (OperationCanceledException e) {
+                return; // Cancelled through its CancellationSignal; the caller no longer wants the result
+            } catch (Exception e) {
+                Log.e(TAG, "Database operation failed", e);
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onError(e));
+                }
+                return;
+            }
+            if (callback != null && !Thread.currentThread().isInterrupted()) {
+                mainHandler.post(() -> callback.onComplete(result));
+            }
+        });
+    }
+
+    /**
+     * Counts the started activities of the app and writes the queued changes when none is left on screen.
+     */
+    private final class VisibilityTracker implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+            startedActivities++;
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+            startedActivities = Math.max(0, startedActivities - 1); // Activities started before the repository existed
+            if (startedActivities == 0) {
+                flushQueuedChanges();
+            }
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.patino.todolistapp;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+
+import androidx.annotation.AnyThread;
+import androidx.core.content.ContextCompat;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The display model of one row of a task list.
+ *
+ * Rows are immutable, so the list differ can read them on its background thread while the main thread binds them.
+ * The status of a task still to do follows the clock and is worked out when the row is bound; StatusTicker only
+ * tells the adapter when to bind it again.
+ */
+public class TaskRow {
+    private static final int FOLLOWS_CLOCK = -1;
+
+    private final Task task;
+    private final String formattedDate;
+    private final ColorStateList[] statusColors; // Shared with the factory, indexed by status
+    private final int fixedStatus; // The TaskStatus of an archived row, or FOLLOWS_CLOCK
+
+    //POJO Class Constructor
+    private TaskRow(Task task, String formattedDate, int fixedStatus, ColorStateList[] statusColors) {
+        this.task = task;
+        this.formattedDate = formattedDate;
+        this.fixedStatus = fixedStatus;
+        this.statusColors = statusColors;
+    }
+
+    //·········································GETTERS·················································
+    public Task getTask() {
+        return task;
+    }
+
+    public String getFormattedDate() {
+        return formattedDate;
+    }
+
+    /**
+     * Returns whether the status of the row changes with time, rather than being fixed when it was archived.
+     */
+    public boolean followsClock() {
+        return fixedStatus == FOLLOWS_CLOCK;
+    }
+
+    /**
+     * Classifies the task against a time.
+     *
+     * @param now The current time.
+     * @return A TaskStatus value; always the same one for an archived row.
+     */
+    public int getStatus(long now) {
+        return fixedStatus != FOLLOWS_CLOCK ? fixedStatus : TaskStatus.classify(task.getTimestamp(), now);
+    }
+
+    public ColorStateList getTitleColor(int status) {
+        return statusColors[status];
+    }
+
+    /**
+     * Builds TaskRow display models off the UI thread.
+     *
+     * Resolves the status colors once and reuses a single date formatter, so binding a row only copies
+     * precomputed values into its views.
+     */
+    public static class Factory {
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy - HH:mm", Locale.getDefault());
+        private final ColorStateList[] statusColors = new ColorStateList[3];
+
+        // Class Constructor
+        public Factory(Context context) {
+            statusColors[TaskStatus.ON_TIME] = ColorStateList.valueOf(ContextCompat.getColor(context, android.R.color.holo_green_dark)); // Green text
+            statusColors[TaskStatus.DUE_SOON] = ColorStateList.valueOf(ContextCompat.getColor(context, android.R.color.holo_orange_dark)); // Yellow text
+            statusColors[TaskStatus.OVERDUE] = ColorStateList.valueOf(ContextCompat.getColor(context, android.R.color.holo_red_dark)); // Red text
+        }
+
+        /**
+         * Creates the display models for a list of tasks.
+         *
+         * Synchronized because SimpleDateFormat is not thread-safe and rows may be built on more than one
+         * thread. The main thread only builds the small first page read from the first page file.
+         *
+         * @param tasks The tasks to display.
+         * @return One row per task, in the same order.
+         */
+        @AnyThread
+        public synchronized List<TaskRow> createRows(List<Task> tasks) {
+            List<TaskRow> rows = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                rows.add(new TaskRow(task, dateFormat.format(task.getTimestamp()), FOLLOWS_CLOCK, statusColors));
+            }
+            return rows;
+        }
+
+        /**
+         * Creates the display models for a page of archived tasks.
+         *
+         * Archived tasks no longer change status: tasks marked done are shown as on time, and tasks whose time
+         * passed are shown as overdue.
+         *
+         * @param archivedTasks The archived tasks to display.
+         * @return One row per archived task, in the same order.
+         */
+        @AnyThread
+        public synchronized List<TaskRow> createArchivedRows(List<ArchivedTask> archivedTasks) {
+            List<TaskRow> rows = new ArrayList<>(archivedTasks.size());
+            for (ArchivedTask archivedTask : archivedTasks) {
+                Task task = archivedTask.getTask();
+                int status = archivedTask.isCompleted() ? TaskStatus.ON_TIME : TaskStatus.OVERDUE;
+                rows.add(new TaskRow(task, dateFormat.format(task.getTimestamp()), status, statusColors));
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.patino.todolistapp;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams the tasks table, the archive and the recurring tasks to and from JSON or CSV files.
+ *
+ * Both directions work one row at a time: export walks the tables in keyset pages and writes each row as soon as it
+ * is read, and import parses one row, inserts it and commits every BATCH_SIZE rows. Memory use therefore stays the
+ * same whether the file holds a hundred tasks or a million.
+ *
+ * The JSON format is {"version": 3, "tasks": [{"title": ..., "description": ..., "timestamp": ...}, ...]}, where the
+ * archived tasks follow the others with a "state" of TaskCsv.STATE_DONE or STATE_EXPIRED and an "archivedTimestamp",
+ * and the recurring tasks come last, with their start as the timestamp and a "repeat" object holding the
+ * "frequency" (see TaskCsv.frequencyName()), the "interval" and, when they end, the "count" or the "until" time.
+ * The CSV format is described in TaskCsv. Task IDs are not exported, since imported tasks are given new ones;
+ * archived tasks are imported back into the archive and recurring tasks as series.
+ */
+public final class TaskTransfer {
+    public static final int FORMAT_JSON = 0;
+    public static final int FORMAT_CSV = 1;
+
+    static final int BATCH_SIZE = 500; // Rows per import transaction and per export query
+    private static final int JSON_VERSION = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Metrics.Histogram EXPORT_LATENCY = Metrics.histogram("transfer.export");
+    private static final Metrics.Histogram IMPORT_LATENCY = Metrics.histogram("transfer.import");
+
+    // Interface used to report how many rows have been transferred so far
+    public interface ProgressListener {
+        void onProgress(int rows);
+    }
+
+    private TaskTransfer() {
+    }
+
+    /**
+     * Writes every task, then every archived task, then every recurring task, to a stream.
+     *
+     * @param databaseHelper The database to export.
+     * @param output The stream to write to; it is closed when the export ends.
+     * @param format FORMAT_JSON or FORMAT_CSV.
+     * @param listener Notified every BATCH_SIZE rows, on the calling thread, or null.
+     * @return The number of rows written and the time it took.
+     */
+    @WorkerThread
+    public static Result exportTasks(DatabaseHelper databaseHelper, OutputStream output, int format,
+                                     @Nullable ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        long timer = Metrics.startTimer();
+        int rows;
+        int[] written = {0}; // Rows written so far, across the tasks, the archive and the series
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            if (format == FORMAT_CSV) {
+                TaskCsv.writeHeader(writer);
+                rows = databaseHelper.forEachTask(BATCH_SIZE, (id, title, description, timestamp) -> {
+                    TaskCsv.writeRow(writer, title, description, timestamp);
+                    reportProgress(listener, ++written[0]);
+                });
+                rows += databaseHelper.forEachArchivedTask(BATCH_SIZE,
+                        (id, title, description, timestamp, completed, archivedTimestamp) -> {
+                            TaskCsv.writeArchivedRow(writer, title, description, timestamp, completed, archivedTimestamp);
+                            reportProgress(listener, ++written[0]);
+                        });
+                // A series is one row however often it repeats, so they are few enough to read in one query
+                for (TaskSeries series : databaseHelper.getActiveSeries(Long.MIN_VALUE)) {
+                    TaskCsv.writeSeriesRow(writer, series);
+                    reportProgress(listener, ++written[0]);
+                    rows++;
+                }
+            } else {
+                JsonWriter json = new JsonWriter(writer);
+                json.beginObject();
+                json.name("version").value(JSON_VERSION);
+                json.name("tasks").beginArray();
+                rows = databaseHelper.forEachTask(BATCH_SIZE, (id, title, description, timestamp) -> {
+                    writeJsonTask(json, title, description, timestamp).endObject();
+                    reportProgress(listener, ++written[0]);
+                });
+                rows += databaseHelper.forEachArchivedTask(BATCH_SIZE,
+                        (id, title, description, timestamp, completed, archivedTimestamp) -> {
+                            writeJsonTask(json, title, description, timestamp)
+                                    .name("state").value(completed ? TaskCsv.STATE_DONE : TaskCsv.STATE_EXPIRED)
+                                    .name("archivedTimestamp").value(archivedTimestamp)
+                                    .endObject();
+                            reportProgress(listener, ++written[0]);
+                        });
+                for (TaskSeries series : databaseHelper.getActiveSeries(Long.MIN_VALUE)) {
+                    writeJsonSeries(json, series);
+                    reportProgress(listener, ++written[0]);
+                    rows++;
+                }
+                json.endArray();
+                json.endObject();
+                json.flush();
+            }
+        }
+        if (listener != null) {
+            listener.onProgress(rows);
+        }
+        EXPORT_LATENCY.stopTimer(timer);
+        return new Result(rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Adds every task in a stream to the database, in transactions of BATCH_SIZE rows.
+     *
+     * If the file turns out to be malformed part way through, the batches committed before the bad row are kept.
+     *
+     * @param databaseHelper The database to import into.
+     * @param input The stream to read from; it is closed when the import ends.
+     * @param format FORMAT_JSON or FORMAT_CSV.
+     * @param listener Notified after every committed batch, on the calling thread, or null.
+     * @return The number of rows imported and the time it took.
+     */
+    @WorkerThread
+    public static Result importTasks(DatabaseHelper databaseHelper, InputStream input, int format,
+                                     @Nullable ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        long timer = Metrics.startTimer();
+        DatabaseHelper.ImportListener onBatch = listener != null ? listener::onProgress : null;
+        int rows;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            if (format == FORMAT_CSV) {
+                TaskCsv.RowReader csv = new TaskCsv.RowReader(reader);
+                rows = databaseHelper.importTasks(new DatabaseHelper.TaskSource() {
+                    @Override
+                    public Task next() throws IOException {
+                        return csv.next();
+                    }
+
+                    @Override
+                    public boolean isArchived() {
+                        return csv.isArchived();
+                    }
+
+                    @Override
+                    public boolean isCompleted() {
+                        return csv.isCompleted();
+                    }
+
+                    @Override
+                    public long getArchivedTimestamp() {
+                        return csv.getArchivedTimestamp();
+                    }
+
+                    @Override
+                    public TaskSeries getSeries() {
+                        return csv.getSeries();
+                    }
+                }, BATCH_SIZE, onBatch);
+            } else {
+                JsonReader json = new JsonReader(reader);
+                try {
+                    openJsonTaskArray(json);
+                    rows = databaseHelper.importTasks(new JsonTaskSource(json), BATCH_SIZE, onBatch);
+                } catch (IllegalStateException | NumberFormatException e) {
+                    // JsonReader reports a value of the wrong type with unchecked exceptions
+                    throw new IOException("Malformed task export at " + json, e);
+                }
+            }
+        }
+        IMPORT_LATENCY.stopTimer(timer);
+        return new Result(rows, System.nanoTime() - start);
+    }
+
+    private static void reportProgress(@Nullable ProgressListener listener, int rows) {
+        if (listener != null && rows % BATCH_SIZE == 0) {
+            listener.onProgress(rows);
+        }
+    }
+
+    /**
+     * Moves a JSON reader into the "tasks" array of an exported file, checking its version on the way.
+     */
+    private static void openJsonTaskArray(JsonReader json) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("version")) {
+                int version = json.nextInt();
+                if (version > JSON_VERSION) {
+                    throw new IOException("Unsupported export version " + version);
+                }
+            } else if (name.equals("tasks")) {
+                json.beginArray();
+                return;
+            } else {
+                json.skipValue();
+            }
+        }
+        throw new IOException("Not a task export: no \"tasks\" array");
+    }
+
+    /**
+     * Writes the fields every exported task has, leaving its object open for the archive fields.
+     */
+    private static JsonWriter writeJsonTask(JsonWriter json, String title, String description, long timestamp)
+            throws IOException {
+        return json.beginObject()
+                .name("title").value(title)
+                .name("description").value(description)
+                .name("timestamp").value(timestamp);
+    }
+
+    /**
+     * Writes a recurring task as a task whose timestamp is its start, with its rule in a "repeat" object.
+     */
+    private static void writeJsonSeries(JsonWriter json, TaskSeries series) throws IOException {
+        writeJsonTask(json, series.getTitle(), series.getDescription(), series.getStartTime())
+                .name("repeat").beginObject()
+                .name("frequency").value(TaskCsv.frequencyName(series.getFrequency()))
+                .name("interval").value(series.getInterval());
+        if (series.getCount() != TaskSeries.UNLIMITED) {
+            json.name("count").value(series.getCount());
+        }
+        if (series.getUntilTime() != TaskSeries.NO_END) {
+            json.name("until").value(series.getUntilTime());
+        }
+        json.endObject().endObject();
+    }
+
+    /**
+     * Reads the tasks of the "tasks" array one at a time.
+     */
+    private static final class JsonTaskSource implements DatabaseHelper.TaskSource {
+        private final JsonReader json;
+        private boolean archived;
+        private boolean completed;
+        private long archivedTimestamp;
+        private TaskSeries series;
+
+        // Class Constructor
+        JsonTaskSource(JsonReader json) {
+            this.json = json;
+        }
+
+        /**
+         * Reads the next task of the "tasks" array.
+         *
+         * @return The task, or null once the array has ended.
+         */
+        @Nullable
+        @Override
+        public Task next() throws IOException {
+            if (!json.hasNext()) {
+                return null;
+            }
+            String title = null;
+            String description = null;
+            Long timestamp = null;
+            String state = null;
+            Long archivedAt = null;
+            boolean repeats = false;
+            String frequency = null;
+            int interval = 1;
+            int count = TaskSeries.UNLIMITED;
+            long untilTime = TaskSeries.NO_END;
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                } else if (name.equals("title")) {
+                    title = json.nextString();
+                } else if (name.equals("description")) {
+                    description = json.nextString();
+                } else if (name.equals("timestamp")) {
+                    timestamp = json.nextLong();
+                } else if (name.equals("state")) {
+                    state = json.nextString();
+                } else if (name.equals("archivedTimestamp")) {
+                    archivedAt = json.nextLong();
+                } else if (name.equals("repeat")) {
+                    repeats = true;
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        String field = json.nextName();
+                        if (field.equals("frequency")) {
+                            frequency = json.nextString();
+                        } else if (field.equals("interval")) {
+                            interval = json.nextInt();
+                        } else if (field.equals("count")) {
+                            count = json.nextInt();
+                        } else if (field.equals("until")) {
+                            untilTime = json.nextLong();
+                        } else {
+                            json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            if (timestamp == null) {
+                throw new IOException("Task without a timestamp at " + json);
+            }
+            archived = state != null;
+            completed = TaskCsv.STATE_DONE.equals(state);
+            if (archived && !completed && !TaskCsv.STATE_EXPIRED.equals(state)) {
+                throw new IOException("Invalid task state '" + state + "' at " + json);
+            }
+            archivedTimestamp = archivedAt != null ? archivedAt : timestamp;
+            if (archived && repeats) {
+                throw new IOException("An archived task cannot repeat, at " + json);
+            }
+            series = null;
+            if (repeats) {
+                try {
+                    series = new TaskSeries(0, title, description, timestamp, TaskCsv.parseFrequency(frequency),
+                            interval, untilTime, count);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid repeat rule at " + json, e);
+                }
+            }
+            return new Task(0, title, description, timestamp);
+        }
+
+        @Override
+        public boolean isArchived() {
+            return archived;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        @Override
+        public long getArchivedTimestamp() {
+            return archivedTimestamp;
+        }
+
+        @Override
+        public TaskSeries getSeries() {
+            return series;
+        }
+    }
+
+    /**
+     * The outcome of an export or import.
+     */
+    public static final class Result {
+        private final int rows;
+        private final long elapsedNanos;
+
+        // Class Constructor
+        Result(int rows, long elapsedNanos) {
+            this.rows = rows;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+        }
+    }
+}
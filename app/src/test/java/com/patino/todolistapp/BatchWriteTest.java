@@ -0,0 +1,101 @@
+package com.patino.todolistapp;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the batched, single-transaction DatabaseHelper writes leave the same rows behind as the per-row ones.
+ *
+ * Their throughput is compared by the opt-in PersistenceBenchmarkTest.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class BatchWriteTest {
+    private static final int ROWS = 20;
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        helper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("tasks.db");
+    }
+
+    @Test
+    public void batchedWrites_matchPerRowWrites() {
+        List<Task> tasks = generateTasks();
+
+        // Per-row writes, one implicit transaction each
+        for (Task task : tasks) {
+            helper.addTask(task.getTitle(), task.getDescription(), task.getTimestamp());
+        }
+        List<String> perRowInserted = describe(helper.getAllTasks());
+        for (Task task : helper.getAllTasks()) {
+            helper.updateTask(task.getId(), task.getTitle(), "Updated " + task.getTitle(), task.getTimestamp() + 1);
+        }
+        List<String> perRowUpdated = describe(helper.getAllTasks());
+        for (int id : everyOtherId(helper.getAllTasks())) {
+            helper.deleteTask(id);
+        }
+        List<String> perRowDeleted = describe(helper.getAllTasks());
+        helper.getWritableDatabase().delete("tasks", null, null);
+
+        // The same writes through the batched APIs
+        helper.addTasks(tasks);
+        assertEquals(perRowInserted, describe(helper.getAllTasks()));
+        List<Task> updates = new ArrayList<>();
+        for (Task task : helper.getAllTasks()) {
+            updates.add(new Task(task.getId(), task.getTitle(), "Updated " + task.getTitle(), task.getTimestamp() + 1));
+        }
+        helper.updateTasks(updates);
+        assertEquals(perRowUpdated, describe(helper.getAllTasks()));
+        helper.deleteTasks(everyOtherId(helper.getAllTasks()));
+        assertEquals(perRowDeleted, describe(helper.getAllTasks()));
+
+        assertEquals(ROWS / 2, perRowDeleted.size());
+    }
+
+    private static List<Task> generateTasks() {
+        List<Task> tasks = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            tasks.add(new Task(0, "Task " + i, "Batch task " + i, 1_700_000_000_000L + i * 60_000L));
+        }
+        return tasks;
+    }
+
+    private static List<Integer> everyOtherId(List<Task> tasks) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i += 2) {
+            ids.add(tasks.get(i).getId());
+        }
+        return ids;
+    }
+
+    // The stored content of each row, leaving out the IDs, which differ between the two passes
+    private static List<String> describe(List<Task> tasks) {
+        List<String> rows = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            rows.add(task.getTitle() + "|" + task.getDescription() + "|" + task.getTimestamp());
+        }
+        return rows;
+    }
+}
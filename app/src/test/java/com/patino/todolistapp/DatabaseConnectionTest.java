@@ -0,0 +1,70 @@
+package com.patino.todolistapp;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the app shares a single long-lived WAL connection instead of opening and closing the database around
+ * every operation.
+ *
+ * The cost of both is compared by the opt-in PersistenceBenchmarkTest.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseConnectionTest {
+    private static final int OPERATIONS = 50;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseHelper.resetInstance();
+        context.deleteDatabase("tasks.db");
+    }
+
+    @Test
+    public void getInstance_returnsTheSameHelperForEveryContext() {
+        DatabaseHelper helper = DatabaseHelper.getInstance(context);
+
+        assertSame(helper, DatabaseHelper.getInstance(context));
+        assertSame(helper, DatabaseHelper.getInstance(context.getApplicationContext()));
+    }
+
+    @Test
+    public void connection_usesWriteAheadLogging() {
+        SQLiteDatabase db = DatabaseHelper.getInstance(context).getReadableDatabase();
+
+        assertTrue(db.isWriteAheadLoggingEnabled());
+    }
+
+    @Test
+    public void connection_staysOpenAcrossOperations() {
+        DatabaseHelper helper = DatabaseHelper.getInstance(context);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            helper.addTask("Task " + i, "Shared connection", i);
+            helper.getAllTasks();
+        }
+
+        assertTrue(db.isOpen());
+        assertSame(db, helper.getWritableDatabase());
+        assertSame(db, helper.getReadableDatabase());
+        assertEquals(OPERATIONS, helper.getAllTasks().size());
+    }
+}
@@ -0,0 +1,145 @@
+package com.patino.todolistapp;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that schema upgrades keep existing tasks and that the ordered range queries are served by
+ * the timestamp index rather than a full table scan.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseMigrationTest {
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase("tasks.db");
+    }
+
+    @Test
+    public void upgradeFromVersion1_keepsTasks() {
+        SQLiteDatabase v1 = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath("tasks.db"), null);
+        v1.execSQL("CREATE TABLE tasks(id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, description TEXT, timestamp INTEGER)");
+        v1.execSQL("INSERT INTO tasks(title, description, timestamp) VALUES('Old task', 'Created on v1', 1000)");
+        v1.setVersion(1);
+        v1.close();
+
+        helper = new DatabaseHelper(context);
+        List<Task> tasks = helper.getAllTasks();
+
+        assertEquals(1, tasks.size());
+        assertEquals("Old task", tasks.get(0).getTitle());
+        assertTrue(hasIndex(DatabaseHelper.INDEX_TASKS_TIMESTAMP));
+    }
+
+    @Test
+    public void upgradeFromVersion5_addsEmptyArchive() {
+        SQLiteDatabase v1 = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath("tasks.db"), null);
+        v1.execSQL("CREATE TABLE tasks(id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, description TEXT, timestamp INTEGER)");
+        v1.execSQL("INSERT INTO tasks(title, description, timestamp) VALUES('Old task', 'Created on v1', 1000)");
+        v1.setVersion(1);
+        v1.close();
+        helper = new DatabaseHelper(context);
+        helper.getWritableDatabase().setVersion(5);
+        helper.getWritableDatabase().execSQL("DROP TABLE task_archive");
+        helper.close();
+
+        helper = new DatabaseHelper(context);
+
+        assertEquals(1, helper.getAllTasks().size());
+        assertTrue(helper.getArchivePage(null, 10).isEmpty());
+        assertTrue(hasIndex(DatabaseHelper.INDEX_ARCHIVE_TIMESTAMP));
+    }
+
+    @Test
+    public void freshInstall_hasTimestampIndex() {
+        helper = new DatabaseHelper(context);
+        assertTrue(hasIndex(DatabaseHelper.INDEX_TASKS_TIMESTAMP));
+    }
+
+    @Test
+    public void rangeQueries_returnOrderedTasks() {
+        helper = new DatabaseHelper(context);
+        helper.addTask("C", "", 300);
+        helper.addTask("A", "", 100);
+        helper.addTask("B", "", 200);
+
+        TaskSnapshot between = helper.getTasksBetween(100, 300);
+        assertEquals(2, between.size());
+        assertEquals("A", between.getTitle(0));
+        assertEquals("B", between.getTitle(1));
+        assertEquals(200, between.getTimestamp(1));
+
+        List<Task> after = helper.getTasksAfter(100);
+        assertEquals(2, after.size());
+        assertEquals("B", after.get(0).getTitle());
+        assertEquals("C", after.get(1).getTitle());
+    }
+
+    @Test
+    public void rangeQueries_useTimestampIndex() {
+        helper = new DatabaseHelper(context);
+        assertUsesTimestampIndex(DatabaseHelper.QUERY_TASKS_BETWEEN, "0", "1000");
+        assertUsesTimestampIndex(DatabaseHelper.QUERY_TASKS_AFTER, "0");
+        assertUsesTimestampIndex(DatabaseHelper.QUERY_NEXT_TASK_AFTER, "0");
+        assertUsesTimestampIndex(DatabaseHelper.QUERY_NEXT_DUE_TASKS, "0");
+        assertUsesTimestampIndex(DatabaseHelper.QUERY_FIRST_PAGE, "50");
+        assertUsesTimestampIndex(DatabaseHelper.QUERY_NEXT_PAGE, "0", "0", "0", "50");
+        assertUsesTimestampIndex(DatabaseHelper.QUERY_IDS_DUE_BEFORE, "0", "500");
+    }
+
+    @Test
+    public void archiveQueries_useArchiveTimestampIndex() {
+        helper = new DatabaseHelper(context);
+        assertUsesIndex(DatabaseHelper.INDEX_ARCHIVE_TIMESTAMP, DatabaseHelper.QUERY_ARCHIVE_FIRST_PAGE, "50");
+        assertUsesIndex(DatabaseHelper.INDEX_ARCHIVE_TIMESTAMP, DatabaseHelper.QUERY_ARCHIVE_NEXT_PAGE,
+                "0", "0", "0", "50");
+    }
+
+    private void assertUsesTimestampIndex(String query, String... args) {
+        assertUsesIndex(DatabaseHelper.INDEX_TASKS_TIMESTAMP, query, args);
+    }
+
+    private void assertUsesIndex(String index, String query, String... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN " + query, args)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        }
+        String details = plan.toString();
+        assertTrue("Expected index use, got: " + details, details.contains(index));
+        assertFalse("Expected no sort step, got: " + details, details.contains("TEMP B-TREE"));
+    }
+
+    private boolean hasIndex(String name) {
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT name FROM sqlite_master WHERE type = 'index' AND name = ?", new String[]{name})) {
+            return cursor.moveToFirst();
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.patino.todolistapp;
+
+import android.content.Context;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures the latency and throughput of the DatabaseHelper operations at several table sizes, and fails when one of
+ * them regresses past the stored baseline.
+ *
+ * The benchmark seeds tens of thousands of rows and compares wall-clock times, so it is skipped by the regular unit
+ * test run and only runs when asked for:
+ * <pre>
+ * ./gradlew :app:testDebugUnitTest --tests '*PersistenceBenchmarkTest' -PpersistenceBenchmark.run=true
+ * </pre>
+ * Results are written to build/reports/persistence-benchmark/report.json and report.txt. The baseline lives in
+ * src/test/resources/persistence-benchmark-baseline.json and tracks the median latency of each operation; an operation
+ * fails when its median exceeds the baseline by more than the threshold stored with it, and operations without a
+ * baseline entry are only reported. To record a new baseline on the reference machine, add
+ * -PpersistenceBenchmark.updateBaseline=true; the machine and JVM it was recorded on are stored with it.
+ *
+ * The comparison cases below the baseline check are only reported, each to its own pair of files in the same
+ * directory, since they measure a speedup between two ways of doing the same work rather than a latency to track.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PersistenceBenchmarkTest {
+    private static final int[] TABLE_SIZES = {1_000, 10_000, 50_000};
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 200; // Single-row operations
+    private static final int SCAN_ITERATIONS = 5; // Full scans are much slower, so fewer samples are taken
+    private static final int PAGE_SIZE = 50;
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private static final String REPORT_DIR = System.getProperty("persistenceBenchmark.reportDir", "build/reports/persistence-benchmark");
+    private static final String BASELINE_FILE = System.getProperty("persistenceBenchmark.baselineFile", "src/test/resources/persistence-benchmark-baseline.json");
+    private static final boolean RUN = Boolean.getBoolean("persistenceBenchmark.run");
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("persistenceBenchmark.updateBaseline");
+    private static final double DEFAULT_THRESHOLD = 0.5;
+    private static final int[] BATCH_ROW_COUNTS = {1_000, 10_000, 100_000};
+    private static final int TRANSFER_ROW_COUNT = 100_000;
+    private static final int CONNECTION_SEED_ROWS = 50;
+    private static final int CONNECTION_ITERATIONS = 500;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private final Random random = new Random(42);
+    private final List<Integer> seededIds = new ArrayList<>();
+    private int nextId = 1; // The ID SQLite assigns to the next row; AUTOINCREMENT never reuses IDs
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Run with -PpersistenceBenchmark.run=true", RUN || UPDATE_BASELINE);
+        context = RuntimeEnvironment.getApplication();
+        helper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        if (helper == null) {
+            return; // Skipped
+        }
+        helper.close();
+        context.deleteDatabase("tasks.db");
+    }
+
+    @Test
+    public void persistenceOperations_stayWithinBaseline() throws IOException, JSONException {
+        List<Result> results = new ArrayList<>();
+        int seeded = 0;
+        for (int size : TABLE_SIZES) {
+            helper.addTasks(generateTasks(seeded, size - seeded));
+            for (; seeded < size; seeded++) {
+                seededIds.add(nextId++);
+            }
+            results.addAll(measure(size));
+            assertEquals(size, helper.getAllTasks().size()); // The measured inserts were deleted again, the next size builds on this table
+        }
+
+        JSONObject baseline = readBaseline();
+        double threshold = baseline != null ? baseline.optDouble("threshold", DEFAULT_THRESHOLD) : DEFAULT_THRESHOLD;
+        List<String> regressions = new ArrayList<>();
+        for (Result result : results) {
+            result.baselineMicros = baseline != null ? baseline.getJSONObject("medianMicros").optDouble(result.key(), Double.NaN) : Double.NaN;
+            if (!Double.isNaN(result.baselineMicros) && result.medianMicros() > result.baselineMicros * (1 + threshold)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.1f us, baseline %.1f us", result.key(), result.medianMicros(), result.baselineMicros));
+            }
+        }
+
+        writeReport(results, threshold, regressions);
+        if (UPDATE_BASELINE) {
+            writeBaseline(results, threshold);
+            return;
+        }
+        assertTrue("Persistence operations regressed by more than " + Math.round(threshold * 100) + "%:\n"
+                + String.join("\n", regressions), regressions.isEmpty());
+    }
+
+    /**
+     * Compares per-row writes, one implicit transaction each, with the batched single-transaction APIs at several
+     * batch sizes, and writes the throughput of both to batch-writes.json and batch-writes.txt.
+     */
+    @Test
+    public void batchedWrites_vs_perRowWrites() throws IOException, JSONException {
+        JSONArray entries = new JSONArray();
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT, "%-8s %-8s %14s %14s %8s%n",
+                "rows", "write", "per-row rows/s", "batched rows/s", "speedup"));
+        for (int rows : BATCH_ROW_COUNTS) {
+            List<Task> tasks = generateTasks(0, rows);
+
+            long start = System.nanoTime();
+            for (Task task : tasks) {
+                helper.addTask(task.getTitle(), task.getDescription(), task.getTimestamp());
+            }
+            long perRowInsert = System.nanoTime() - start;
+            List<Task> stored = helper.getAllTasks();
+            assertEquals(rows, stored.size());
+
+            start = System.nanoTime();
+            for (Task task : stored) {
+                helper.updateTask(task.getId(), task.getTitle(), "Updated", task.getTimestamp());
+            }
+            long perRowUpdate = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Task task : stored) {
+                helper.deleteTask(task.getId());
+            }
+            long perRowDelete = System.nanoTime() - start;
+            assertEquals(0, helper.getAllTasks().size());
+
+            start = System.nanoTime();
+            helper.addTasks(tasks);
+            long batchInsert = System.nanoTime() - start;
+            stored = helper.getAllTasks();
+            assertEquals(rows, stored.size());
+
+            start = System.nanoTime();
+            helper.updateTasks(stored);
+            long batchUpdate = System.nanoTime() - start;
+
+            List<Integer> ids = new ArrayList<>(stored.size());
+            for (Task task : stored) {
+                ids.add(task.getId());
+            }
+            start = System.nanoTime();
+            helper.deleteTasks(ids);
+            long batchDelete = System.nanoTime() - start;
+            assertEquals(0, helper.getAllTasks().size());
+
+            addComparison(entries, table, rows, "insert", perRowInsert, batchInsert);
+            addComparison(entries, table, rows, "update", perRowUpdate, batchUpdate);
+            addComparison(entries, table, rows, "delete", perRowDelete, batchDelete);
+        }
+        writeCaseReport("batch-writes", entries, table);
+    }
+
+    private static void addComparison(JSONArray entries, StringBuilder table, int rows, String write,
+                                      long perRowNanos, long batchNanos) throws JSONException {
+        double perRowRate = rows / (perRowNanos / 1e9);
+        double batchRate = rows / (batchNanos / 1e9);
+        double speedup = (double) perRowNanos / batchNanos;
+        entries.put(new JSONObject()
+                .put("rows", rows)
+                .put("write", write)
+                .put("perRowRowsPerSecond", perRowRate)
+                .put("batchedRowsPerSecond", batchRate)
+                .put("speedup", speedup));
+        table.append(String.format(Locale.ROOT, "%-8d %-8s %14.0f %14.0f %7.1fx%n", rows, write, perRowRate,
+                batchRate, speedup));
+    }
+
+    /**
+     * Exports a large table to JSON and CSV and imports it back, and writes the time and throughput of each to
+     * transfer.json and transfer.txt.
+     */
+    @Test
+    public void largeTable_exportAndImport() throws IOException, JSONException {
+        helper.addTasks(generateTasks(0, TRANSFER_ROW_COUNT));
+        File file = File.createTempFile("tasks", ".export");
+        JSONArray entries = new JSONArray();
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT, "%-6s %8s %8s %10s %12s %10s %12s%n",
+                "format", "rows", "MB", "export ms", "export rows/s", "import ms", "import rows/s"));
+        try {
+            for (int format : new int[]{TaskTransfer.FORMAT_JSON, TaskTransfer.FORMAT_CSV}) {
+                TaskTransfer.Result exported = TaskTransfer.exportTasks(helper, new FileOutputStream(file), format, null);
+                helper.getWritableDatabase().delete("tasks", null, null);
+                TaskTransfer.Result imported = TaskTransfer.importTasks(helper, new FileInputStream(file), format, null);
+                assertEquals(TRANSFER_ROW_COUNT, exported.getRows());
+                assertEquals(TRANSFER_ROW_COUNT, imported.getRows());
+
+                String name = format == TaskTransfer.FORMAT_JSON ? "json" : "csv";
+                entries.put(new JSONObject()
+                        .put("format", name)
+                        .put("rows", TRANSFER_ROW_COUNT)
+                        .put("fileBytes", file.length())
+                        .put("exportMillis", exported.getElapsedMillis())
+                        .put("exportRowsPerSecond", exported.getRowsPerSecond())
+                        .put("importMillis", imported.getElapsedMillis())
+                        .put("importRowsPerSecond", imported.getRowsPerSecond()));
+                table.append(String.format(Locale.ROOT, "%-6s %8d %8.1f %10d %12.0f %10d %12.0f%n", name,
+                        TRANSFER_ROW_COUNT, file.length() / 1e6, exported.getElapsedMillis(),
+                        exported.getRowsPerSecond(), imported.getElapsedMillis(), imported.getRowsPerSecond()));
+            }
+        } finally {
+            file.delete();
+        }
+        writeCaseReport("transfer", entries, table);
+    }
+
+    /**
+     * Compares opening and closing the database around every operation, as DatabaseHelper used to, with keeping one
+     * long-lived WAL connection open, and writes the time per operation of both to connection.json and
+     * connection.txt.
+     */
+    @Test
+    public void sharedConnection_vs_openClosePerOperation() throws IOException, JSONException {
+        helper.addTasks(generateTasks(0, CONNECTION_SEED_ROWS));
+        runConnectionOperations(true, WARMUP_ITERATIONS);
+        runConnectionOperations(false, WARMUP_ITERATIONS);
+
+        long perOperationNanos = runConnectionOperations(true, CONNECTION_ITERATIONS);
+        long sharedNanos = runConnectionOperations(false, CONNECTION_ITERATIONS);
+        assertEquals(CONNECTION_SEED_ROWS + 2 * (WARMUP_ITERATIONS + CONNECTION_ITERATIONS),
+                helper.getAllTasks().size());
+
+        double perOperationMicros = perOperationNanos / 1000.0 / CONNECTION_ITERATIONS;
+        double sharedMicros = sharedNanos / 1000.0 / CONNECTION_ITERATIONS;
+        JSONArray entries = new JSONArray()
+                .put(new JSONObject().put("connection", "openClosePerOperation").put("microsPerOperation", perOperationMicros))
+                .put(new JSONObject().put("connection", "shared").put("microsPerOperation", sharedMicros));
+        StringBuilder table = new StringBuilder()
+                .append(String.format(Locale.ROOT, "open/close per operation: %.1f us/op%n", perOperationMicros))
+                .append(String.format(Locale.ROOT, "shared connection:        %.1f us/op%n", sharedMicros))
+                .append(String.format(Locale.ROOT, "speedup:                  %.2fx%n", (double) perOperationNanos / sharedNanos));
+        writeCaseReport("connection", entries, table);
+    }
+
+    /**
+     * Runs one insert and one small read per iteration, optionally closing the connection after each call the way
+     * every DatabaseHelper method used to.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    private long runConnectionOperations(boolean closeAfterEachOperation, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            helper.addTask("Task " + i, "Benchmark task", BASE_TIME + i);
+            if (closeAfterEachOperation) {
+                helper.close();
+            }
+            helper.getReadableDatabase().rawQuery("SELECT COUNT(*) FROM tasks", null).close();
+            if (closeAfterEachOperation) {
+                helper.close();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Measures every tracked operation against a table that holds the given number of tasks.
+     */
+    private List<Result> measure(int size) {
+        List<Result> results = new ArrayList<>();
+
+        // Single inserts; the new rows are deleted again below
+        List<Task> inserts = generateTasks(size, WARMUP_ITERATIONS + ITERATIONS);
+        int firstInsertedId = nextId;
+        nextId += inserts.size();
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < inserts.size(); i++) {
+            Task task = inserts.get(i);
+            long start = System.nanoTime();
+            helper.addTask(task.getTitle(), task.getDescription(), task.getTimestamp());
+            record(samples, i, System.nanoTime() - start);
+        }
+        results.add(new Result("insert", size, samples));
+
+        // Single updates of random seeded rows
+        samples = new long[ITERATIONS];
+        for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+            int id = seededIds.get(random.nextInt(seededIds.size()));
+            long start = System.nanoTime();
+            helper.updateTask(id, "Updated " + id, "Updated task", randomTimestamp(size));
+            record(samples, i, System.nanoTime() - start);
+        }
+        results.add(new Result("update", size, samples));
+
+        // Single deletes of the rows inserted above
+        samples = new long[ITERATIONS];
+        for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+            long start = System.nanoTime();
+            helper.deleteTask(firstInsertedId + i);
+            record(samples, i, System.nanoTime() - start);
+        }
+        results.add(new Result("delete", size, samples));
+
+        // Full scan of the table, as used by getAllTasks
+        samples = new long[SCAN_ITERATIONS];
+        for (int i = 0; i < 1 + SCAN_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            assertEquals(size, helper.getAllTasks().size());
+            if (i > 0) {
+                samples[i - 1] = System.nanoTime() - start;
+            }
+        }
+        results.add(new Result("fullScan", size, samples));
+
+        // Full scan into a column-oriented snapshot, without a Task object per row
+        samples = new long[SCAN_ITERATIONS];
+        for (int i = 0; i < 1 + SCAN_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            assertEquals(size, helper.getTaskSnapshot().size());
+            if (i > 0) {
+                samples[i - 1] = System.nanoTime() - start;
+            }
+        }
+        results.add(new Result("snapshotScan", size, samples));
+
+        // Ordered keyset pages starting at random points of the list, as used by MainActivity
+        samples = new long[ITERATIONS];
+        for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+            Task after = new Task(0, null, null, randomTimestamp(size));
+            long start = System.nanoTime();
+            helper.getTasksPage(after, PAGE_SIZE);
+            record(samples, i, System.nanoTime() - start);
+        }
+        results.add(new Result("orderedPage", size, samples));
+        return results;
+    }
+
+    // Stores a sample once the warm-up iterations are over
+    private static void record(long[] samples, int iteration, long nanos) {
+        if (iteration >= WARMUP_ITERATIONS) {
+            samples[iteration - WARMUP_ITERATIONS] = nanos;
+        }
+    }
+
+    private long randomTimestamp(int size) {
+        return BASE_TIME + random.nextInt(size) * 60_000L;
+    }
+
+    private static List<Task> generateTasks(int firstIndex, int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = firstIndex; i < firstIndex + count; i++) {
+            tasks.add(new Task(0, "Task " + i, "Benchmark task " + i, BASE_TIME + i * 60_000L));
+        }
+        return tasks;
+    }
+
+    private static JSONObject readBaseline() throws IOException, JSONException {
+        File file = new File(BASELINE_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        return new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the results as report.json, for tooling, and as report.txt, a table to read after a run.
+     */
+    private static void writeReport(List<Result> results, double threshold, List<String> regressions)
+            throws IOException, JSONException {
+        JSONArray entries = new JSONArray();
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT, "%-20s %12s %12s %12s %12s%n",
+                "operation", "median us", "p95 us", "ops/s", "baseline us"));
+        for (Result result : results) {
+            JSONObject entry = new JSONObject()
+                    .put("operation", result.operation)
+                    .put("rows", result.rows)
+                    .put("samples", result.samples.length)
+                    .put("medianMicros", result.medianMicros())
+                    .put("p95Micros", result.p95Micros())
+                    .put("opsPerSecond", result.opsPerSecond());
+            if (!Double.isNaN(result.baselineMicros)) {
+                entry.put("baselineMicros", result.baselineMicros);
+            }
+            entries.put(entry);
+            table.append(String.format(Locale.ROOT, "%-20s %12.1f %12.1f %12.0f %12s%n", result.key(),
+                    result.medianMicros(), result.p95Micros(), result.opsPerSecond(),
+                    Double.isNaN(result.baselineMicros) ? "-" : String.format(Locale.ROOT, "%.1f", result.baselineMicros)));
+        }
+        for (String regression : regressions) {
+            table.append("REGRESSION ").append(regression).append('\n');
+        }
+        JSONObject report = new JSONObject()
+                .put("environment", environment())
+                .put("threshold", threshold)
+                .put("results", entries)
+                .put("regressions", new JSONArray(regressions));
+        File dir = reportDir();
+        Files.write(new File(dir, "report.json").toPath(), report.toString(2).getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(dir, "report.txt").toPath(), table.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the results of a comparison case as name.json and name.txt, next to the main report.
+     */
+    private static void writeCaseReport(String name, JSONArray entries, StringBuilder table)
+            throws IOException, JSONException {
+        JSONObject report = new JSONObject()
+                .put("environment", environment())
+                .put("results", entries);
+        File dir = reportDir();
+        Files.write(new File(dir, name + ".json").toPath(), report.toString(2).getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(dir, name + ".txt").toPath(), table.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static File reportDir() {
+        File dir = new File(REPORT_DIR);
+        assertTrue(dir.isDirectory() || dir.mkdirs());
+        return dir;
+    }
+
+    private static void writeBaseline(List<Result> results, double threshold) throws IOException, JSONException {
+        JSONObject medians = new JSONObject();
+        for (Result result : results) {
+            medians.put(result.key(), Math.round(result.medianMicros() * 10) / 10.0);
+        }
+        JSONObject baseline = new JSONObject()
+                .put("recordedOn", environment())
+                .put("threshold", threshold)
+                .put("medianMicros", medians);
+        Files.write(new File(BASELINE_FILE).toPath(), (baseline.toString(2) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The machine and JVM the numbers were measured on, since they are only comparable on the same setup
+    private static JSONObject environment() throws JSONException {
+        return new JSONObject()
+                .put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"))
+                .put("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"))
+                .put("processors", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The latency samples of one operation at one table size.
+     */
+    private static class Result {
+        final String operation;
+        final int rows;
+        final long[] samples; // Sorted, in nanoseconds
+        double baselineMicros = Double.NaN; // NaN when the baseline has no entry for this operation
+
+        Result(String operation, int rows, long[] samples) {
+            this.operation = operation;
+            this.rows = rows;
+            this.samples = samples;
+            Arrays.sort(samples);
+        }
+
+        String key() {
+            return operation + "@" + rows;
+        }
+
+        double medianMicros() {
+            return samples[samples.length / 2] / 1000.0;
+        }
+
+        double p95Micros() {
+            return samples[(int) Math.ceil(samples.length * 0.95) - 1] / 1000.0;
+        }
+
+        double opsPerSecond() {
+            long total = 0;
+            for (long sample : samples) {
+                total += sample;
+            }
+            return samples.length / (total / 1e9);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.patino.todolistapp;
+
+import android.app.AlarmManager;
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReminderSchedulerTest {
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private ShadowAlarmManager alarms;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        helper = DatabaseHelper.getInstance(context);
+        alarms = shadowOf((AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseHelper.resetInstance();
+        context.deleteDatabase("tasks.db");
+    }
+
+    @Test
+    public void onlyTheNextDueTaskIsArmed() {
+        long now = System.currentTimeMillis();
+        helper.addTask("Later", "", now + 3 * HOUR);
+        helper.addTask("Next", "", now + HOUR);
+        helper.addTask("Past", "", now - HOUR);
+
+        ReminderScheduler.reconcileReminders(context);
+
+        List<ShadowAlarmManager.ScheduledAlarm> scheduled = alarms.getScheduledAlarms();
+        assertEquals(1, scheduled.size());
+        assertEquals(now + HOUR - ReminderScheduler.REMINDER_OFFSET_MILLIS, scheduled.get(0).getTriggerAtMs());
+    }
+
+    @Test
+    public void reconcilingTwiceTouchesNothing() {
+        long now = System.currentTimeMillis();
+        helper.addTask("Next", "", now + HOUR);
+        ReminderScheduler.reconcileReminders(context);
+        Map<Integer, Long> ledger = helper.getReminderLedger();
+
+        ReminderScheduler.reconcileReminders(context);
+
+        assertEquals(ledger, helper.getReminderLedger());
+        assertEquals(1, alarms.getScheduledAlarms().size());
+    }
+
+    @Test
+    public void editingTheArmedTaskMovesItsAlarm() {
+        long now = System.currentTimeMillis();
+        helper.addTask("Next", "", now + HOUR);
+        ReminderScheduler.reconcileReminders(context);
+        int id = helper.getAllTasks().get(0).getId();
+
+        helper.updateTask(id, "Next", "", now + 2 * HOUR);
+        ReminderScheduler.reconcileReminders(context);
+
+        List<ShadowAlarmManager.ScheduledAlarm> scheduled = alarms.getScheduledAlarms();
+        assertEquals(1, scheduled.size());
+        assertEquals(now + 2 * HOUR - ReminderScheduler.REMINDER_OFFSET_MILLIS, scheduled.get(0).getTriggerAtMs());
+        assertEquals(Long.valueOf(now + 2 * HOUR - ReminderScheduler.REMINDER_OFFSET_MILLIS), helper.getReminderLedger().get(id));
+    }
+
+    @Test
+    public void deletingTheArmedTaskCancelsItsAlarm() {
+        long now = System.currentTimeMillis();
+        helper.addTask("Next", "", now + HOUR);
+        ReminderScheduler.reconcileReminders(context);
+        int id = helper.getAllTasks().get(0).getId();
+
+        helper.deleteTask(id);
+        ReminderScheduler.reconcileReminders(context);
+
+        assertTrue(alarms.getScheduledAlarms().isEmpty());
+        assertTrue(helper.getReminderLedger().isEmpty());
+    }
+
+    @Test
+    public void aRecurringTaskArmsOnlyItsNextOccurrence() {
+        long now = System.currentTimeMillis();
+        long start = now - 10 * 24 * HOUR + HOUR; // Started ten days ago, next occurrence an hour from now
+        int seriesId = helper.addSeries("Daily", "", start, TaskSeries.DAILY, 1, TaskSeries.NO_END, TaskSeries.UNLIMITED);
+        helper.addTask("Later", "", now + 3 * HOUR);
+
+        ReminderScheduler.reconcileReminders(context);
+
+        long next = new TaskSeries(seriesId, "Daily", "", start, TaskSeries.DAILY, 1, TaskSeries.NO_END,
+                TaskSeries.UNLIMITED).nextOccurrenceAfter(now, TimeZone.getDefault());
+        List<ShadowAlarmManager.ScheduledAlarm> scheduled = alarms.getScheduledAlarms();
+        assertEquals(1, scheduled.size());
+        assertEquals(next - ReminderScheduler.REMINDER_OFFSET_MILLIS, scheduled.get(0).getTriggerAtMs());
+        assertTrue(helper.getReminderLedger().containsKey(-seriesId));
+
+        helper.deleteSeries(seriesId);
+        ReminderScheduler.reconcileReminders(context);
+
+        assertEquals(now + 3 * HOUR - ReminderScheduler.REMINDER_OFFSET_MILLIS,
+                alarms.getScheduledAlarms().get(0).getTriggerAtMs());
+        assertFalse(helper.getReminderLedger().containsKey(-seriesId));
+    }
+
+    @Test
+    public void taskAddedAfterTheLastNotifiedOneIsStillArmed() {
+        long now = System.currentTimeMillis();
+        helper.addTask("Notified", "", now + HOUR);
+        ReminderScheduler.markNotifiedUntil(context, now + HOUR);
+        ReminderScheduler.markNotifiedUntil(context, now); // An older mark does not move it back
+
+        helper.addTask("Added later", "", now + HOUR + 1000);
+        ReminderScheduler.reconcileReminders(context);
+
+        List<ShadowAlarmManager.ScheduledAlarm> scheduled = alarms.getScheduledAlarms();
+        assertEquals(1, scheduled.size());
+        assertEquals(now + HOUR + 1000 - ReminderScheduler.REMINDER_OFFSET_MILLIS, scheduled.get(0).getTriggerAtMs());
+    }
+
+    @Test
+    public void endedSeriesAreNotActive() {
+        long now = System.currentTimeMillis();
+        helper.addSeries("Three times", "", now - 10 * 24 * HOUR, TaskSeries.DAILY, 1, TaskSeries.NO_END, 3);
+        helper.addSeries("Until tomorrow", "", now - HOUR, TaskSeries.DAILY, 1, now + 24 * HOUR, TaskSeries.UNLIMITED);
+
+        List<TaskSeries> active = helper.getActiveSeries(now);
+
+        assertEquals(1, active.size());
+        assertEquals("Until tomorrow", active.get(0).getTitle());
+        assertEquals(2, helper.getActiveSeries(Long.MIN_VALUE).size());
+    }
+}
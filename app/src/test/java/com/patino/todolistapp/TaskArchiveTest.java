@@ -0,0 +1,135 @@
+package com.patino.todolistapp;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TaskArchiveTest {
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        helper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("tasks.db");
+    }
+
+    @Test
+    public void archiveTasksDueBefore_movesOnlyPastTasksInBatches() {
+        int first = helper.addTask("Pasada 1", "", 100);
+        int second = helper.addTask("Pasada 2", "", 200);
+        int third = helper.addTask("Pasada 3", "", 300);
+        helper.addTask("Futura", "", 1000);
+
+        List<Integer> archived = helper.archiveTasksDueBefore(500, 2000, 2);
+
+        assertEquals(Arrays.asList(first, second, third), archived);
+        List<Task> active = helper.getAllTasks();
+        assertEquals(1, active.size());
+        assertEquals("Futura", active.get(0).getTitle());
+        assertTrue(helper.searchTasks("pasada", 10, 0, null).isEmpty());
+
+        List<ArchivedTask> page = helper.getArchivePage(null, 10);
+        assertEquals(3, page.size());
+        assertEquals(third, page.get(0).getTask().getId());
+        assertFalse(page.get(0).isCompleted());
+        assertEquals(2000, page.get(0).getArchivedTimestamp());
+    }
+
+    @Test
+    public void completeTask_movesTaskAsDone() {
+        int id = helper.addTask("Hecha", "Descripción", 5000);
+
+        assertTrue(helper.completeTask(id, 1000));
+        assertFalse(helper.completeTask(id, 1000)); // Already moved
+
+        assertNull(helper.getTask(id));
+        List<ArchivedTask> page = helper.getArchivePage(null, 10);
+        assertEquals(1, page.size());
+        assertTrue(page.get(0).isCompleted());
+        assertEquals("Descripción", page.get(0).getTask().getDescription());
+    }
+
+    @Test
+    public void archivePage_continuesAfterKeysetMostRecentFirst() {
+        int a = helper.addTask("A", "", 100);
+        int b = helper.addTask("B", "", 200);
+        int c = helper.addTask("C", "", 200);
+        helper.archiveTasksDueBefore(1000, 2000, 10);
+
+        List<ArchivedTask> first = helper.getArchivePage(null, 2);
+        assertEquals(c, first.get(0).getTask().getId());
+        assertEquals(b, first.get(1).getTask().getId());
+
+        List<ArchivedTask> second = helper.getArchivePage(first.get(1), 2);
+        assertEquals(1, second.size());
+        assertEquals(a, second.get(0).getTask().getId());
+    }
+
+    @Test
+    public void firstPage_leavesOutOccurrencesOlderThanTheArchiveDelay() {
+        long now = System.currentTimeMillis();
+        long day = TimeUnit.DAYS.toMillis(1);
+        helper.addSeries("Diaria", "", now - 21 * day, TaskSeries.DAILY, 1, TaskSeries.NO_END, TaskSeries.UNLIMITED);
+        helper.addTask("Mañana", "", now + day);
+
+        TaskTimeline.Page<Task> page = TaskRepository.loadPage(helper, TaskTimeline.Position.START, 5);
+
+        assertEquals(5, page.getItems().size());
+        for (Task task : page.getItems()) {
+            assertTrue(task.getTimestamp() >= now - TaskRepository.ARCHIVE_AFTER_MILLIS);
+        }
+        assertTrue(TaskSeries.isOccurrenceId(page.getItems().get(0).getId()));
+
+        // The next page carries on from the first one instead of starting the series over
+        TaskTimeline.Page<Task> next = TaskRepository.loadPage(helper, page.getNext(), 5);
+        assertTrue(next.getItems().get(0).getTimestamp() > page.getItems().get(4).getTimestamp());
+    }
+
+    @Test
+    public void freshDatabase_usesIncrementalVacuum() {
+        assertEquals(DatabaseHelper.AUTO_VACUUM_INCREMENTAL,
+                DatabaseUtils.longForQuery(helper.getReadableDatabase(), "PRAGMA auto_vacuum", null));
+    }
+
+    @Test
+    public void incrementalVacuum_switchesModeAndReleasesFreePages() {
+        // As in a database created before incremental vacuuming was enabled
+        helper.getWritableDatabase().execSQL("PRAGMA auto_vacuum = 0");
+        helper.getWritableDatabase().execSQL("VACUUM");
+        for (int i = 0; i < 500; i++) {
+            helper.addTask("Tarea " + i, new String(new char[500]).replace('\0', 'x'), i);
+        }
+        helper.incrementalVacuum(1); // Switches the mode first
+        assertEquals(DatabaseHelper.AUTO_VACUUM_INCREMENTAL,
+                DatabaseUtils.longForQuery(helper.getReadableDatabase(), "PRAGMA auto_vacuum", null));
+
+        helper.archiveTasksDueBefore(1000, 2000, 100);
+        helper.getWritableDatabase().execSQL("DELETE FROM task_archive");
+        long freePages = DatabaseUtils.longForQuery(helper.getReadableDatabase(), "PRAGMA freelist_count", null);
+        assertTrue(freePages > 0);
+
+        assertEquals(0, helper.incrementalVacuum(Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,59 @@
+package com.patino.todolistapp;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TaskPreviewTest {
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        helper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("tasks.db");
+    }
+
+    @Test
+    public void listQueries_readOnlyDescriptionPreview() {
+        char[] note = new char[10_000];
+        Arrays.fill(note, 'x');
+        String longDescription = "nota " + new String(note);
+        helper.addTask("Notas largas", longDescription, 100);
+        helper.addTask("Corta", "Breve", 200);
+
+        List<Task> page = helper.getTasksPage(null, 10);
+        assertEquals(DatabaseHelper.DESCRIPTION_PREVIEW_LENGTH, page.get(0).getDescription().length());
+        assertTrue(longDescription.startsWith(page.get(0).getDescription()));
+        assertEquals("Breve", page.get(1).getDescription());
+
+        List<Task> found = helper.searchTasks("nota", 10, 0, null);
+        assertEquals(DatabaseHelper.DESCRIPTION_PREVIEW_LENGTH, found.get(0).getDescription().length());
+
+        // The full record is loaded by ID
+        Task task = helper.getTask(page.get(0).getId());
+        assertNotNull(task);
+        assertEquals(longDescription, task.getDescription());
+        assertEquals(100, task.getTimestamp());
+        assertNull(helper.getTask(12345));
+    }
+}
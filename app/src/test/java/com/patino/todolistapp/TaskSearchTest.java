@@ -0,0 +1,107 @@
+package com.patino.todolistapp;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TaskSearchTest {
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        helper = new DatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("tasks.db");
+    }
+
+    @Test
+    public void prefixMatchQuery_stripsSyntax() {
+        assertEquals("buy* mil*", DatabaseHelper.toPrefixMatchQuery("  buy \"mil"));
+        assertEquals("a* or* b*", DatabaseHelper.toPrefixMatchQuery("a OR-b*"));
+        assertNull(DatabaseHelper.toPrefixMatchQuery(" -*\" "));
+    }
+
+    @Test
+    public void search_findsPrefixesAndFollowsEdits() {
+        helper.addTask("Comprar leche", "En el supermercado", 100);
+        helper.addTask("Leer", "Un libro", 200);
+
+        assertEquals(2, helper.searchTasks("le", 10, 0, null).size());
+        assertEquals(1, helper.searchTasks("super", 10, 0, null).size());
+
+        int id = helper.searchTasks("libro", 10, 0, null).get(0).getId();
+        helper.updateTask(id, "Correr", "En el parque", 200);
+        assertTrue(helper.searchTasks("libro", 10, 0, null).isEmpty());
+        assertEquals(1, helper.searchTasks("parque", 10, 0, null).size());
+
+        helper.deleteTask(id);
+        assertTrue(helper.searchTasks("parque", 10, 0, null).isEmpty());
+    }
+
+    @Test
+    public void search_ranksMoreMatchesFirst() {
+        helper.addTask("Leche", "Nada", 100);
+        helper.addTask("Leche", "Leche y más leche", 200);
+
+        List<Task> results = helper.searchTasks("leche", 10, 0, null);
+        assertEquals(2, results.size());
+        assertEquals(200, results.get(0).getTimestamp());
+    }
+
+    @Test
+    public void search_ranksByMatchCountWhereverTheMatchesAre() {
+        // Two matches far into a long description, with long words, take more characters to list in offsets() than
+        // three matches at the start of the title, but still rank below them
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            description.append("relleno ");
+        }
+        description.append("lecheriazos lecheriazos");
+        helper.addTask("Lejos", description.toString(), 100);
+        helper.addTask("Leche leche leche", "Nada", 200);
+
+        List<Task> results = helper.searchTasks("leche", 10, 0, null);
+        assertEquals(2, results.size());
+        assertEquals(200, results.get(0).getTimestamp());
+    }
+
+    @Test
+    public void search_findsOneTaskAmongManyAndPages() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            tasks.add(new Task(0, "Task " + i, "Description number " + i, i));
+        }
+        tasks.add(new Task(0, "Dentista", "Cita anual", 5));
+        helper.addTasks(tasks);
+
+        List<Task> results = helper.searchTasks("dent", 50, 0, null);
+        assertEquals(1, results.size());
+        assertEquals("Dentista", results.get(0).getTitle());
+
+        // Equal ranks fall back to timestamp order, so the pages follow each other
+        List<Task> firstPage = helper.searchTasks("task", 50, 0, null);
+        List<Task> secondPage = helper.searchTasks("task", 50, 50, null);
+        assertEquals(50, firstPage.size());
+        assertEquals(49, firstPage.get(49).getTimestamp());
+        assertEquals(50, secondPage.get(0).getTimestamp());
+    }
+}
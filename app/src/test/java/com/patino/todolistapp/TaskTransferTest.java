@@ -0,0 +1,198 @@
+package com.patino.todolistapp;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trips the tasks table through the streaming JSON and CSV formats.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TaskTransferTest {
+    private static final int BATCHED_ROW_COUNT = 2 * TaskTransfer.BATCH_SIZE + TaskTransfer.BATCH_SIZE / 2;
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private Context context;
+    private DatabaseHelper helper;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        helper = new DatabaseHelper(context);
+        file = File.createTempFile("tasks", ".export");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase("tasks.db");
+        file.delete();
+    }
+
+    @Test
+    public void roundTrip_keepsAwkwardContent() throws IOException {
+        helper.addTask("Coma, \"comillas\"", "Línea uno\nLínea dos", BASE_TIME);
+        helper.addTask(null, null, BASE_TIME + 1);
+
+        for (int format : new int[]{TaskTransfer.FORMAT_JSON, TaskTransfer.FORMAT_CSV}) {
+            TaskTransfer.exportTasks(helper, new FileOutputStream(file), format, null);
+            clearTasks();
+            TaskTransfer.Result result = TaskTransfer.importTasks(helper, new FileInputStream(file), format, null);
+
+            List<Task> tasks = helper.getAllTasks();
+            assertEquals(2, result.getRows());
+            assertEquals("Coma, \"comillas\"", tasks.get(0).getTitle());
+            assertEquals("Línea uno\nLínea dos", tasks.get(0).getDescription());
+            assertEquals(BASE_TIME + 1, tasks.get(1).getTimestamp());
+        }
+    }
+
+    @Test
+    public void roundTrip_keepsArchivedTasksInTheArchive() throws IOException {
+        helper.addTask("Pendiente", "", BASE_TIME + 3);
+        int done = helper.addTask("Hecha", "", BASE_TIME + 2);
+        helper.addTask("Pasada", "", BASE_TIME + 1);
+        helper.completeTask(done, BASE_TIME + 10);
+        helper.archiveTasksDueBefore(BASE_TIME + 2, BASE_TIME + 20, 10);
+
+        for (int format : new int[]{TaskTransfer.FORMAT_JSON, TaskTransfer.FORMAT_CSV}) {
+            TaskTransfer.Result exported = TaskTransfer.exportTasks(helper, new FileOutputStream(file), format, null);
+            clearTasks();
+            helper.getWritableDatabase().delete("task_archive", null, null);
+            TaskTransfer.importTasks(helper, new FileInputStream(file), format, null);
+
+            assertEquals(3, exported.getRows());
+            List<Task> tasks = helper.getAllTasks();
+            assertEquals(1, tasks.size());
+            assertEquals("Pendiente", tasks.get(0).getTitle());
+            List<ArchivedTask> archive = helper.getArchivePage(null, 10);
+            assertEquals(2, archive.size());
+            assertEquals("Hecha", archive.get(0).getTask().getTitle());
+            assertTrue(archive.get(0).isCompleted());
+            assertEquals(BASE_TIME + 10, archive.get(0).getArchivedTimestamp());
+            assertEquals("Pasada", archive.get(1).getTask().getTitle());
+            assertFalse(archive.get(1).isCompleted());
+            assertEquals(BASE_TIME + 20, archive.get(1).getArchivedTimestamp());
+        }
+    }
+
+    @Test
+    public void roundTrip_keepsRecurringTasksAsSeries() throws IOException {
+        helper.addSeries("Diaria", "Siempre", BASE_TIME, TaskSeries.DAILY, 1, TaskSeries.NO_END, TaskSeries.UNLIMITED);
+        helper.addSeries("Quincenal", "", BASE_TIME + 5, TaskSeries.WEEKLY, 2, BASE_TIME + 100 * 86_400_000L, 4);
+        helper.addTask("Sola", "", BASE_TIME + 1);
+
+        for (int format : new int[]{TaskTransfer.FORMAT_JSON, TaskTransfer.FORMAT_CSV}) {
+            TaskTransfer.Result exported = TaskTransfer.exportTasks(helper, new FileOutputStream(file), format, null);
+            clearTasks();
+            TaskTransfer.importTasks(helper, new FileInputStream(file), format, null);
+
+            assertEquals(3, exported.getRows());
+            assertEquals(1, helper.getAllTasks().size());
+            List<TaskSeries> series = helper.getActiveSeries(Long.MIN_VALUE);
+            assertEquals(2, series.size());
+            assertEquals("Diaria", series.get(0).getTitle());
+            assertEquals("Siempre", series.get(0).getDescription());
+            assertEquals(TaskSeries.NO_END, series.get(0).getUntilTime());
+            assertEquals(TaskSeries.UNLIMITED, series.get(0).getCount());
+            assertEquals(BASE_TIME + 5, series.get(1).getStartTime());
+            assertEquals(TaskSeries.WEEKLY, series.get(1).getFrequency());
+            assertEquals(2, series.get(1).getInterval());
+            assertEquals(BASE_TIME + 100 * 86_400_000L, series.get(1).getUntilTime());
+            assertEquals(4, series.get(1).getCount());
+            // The stored end is computed again, so an ended series is still left out
+            assertEquals(1, helper.getActiveSeries(BASE_TIME + 200 * 86_400_000L).size());
+        }
+    }
+
+    @Test
+    public void versionOneJson_isStillImported() throws IOException {
+        String json = "{\"version\": 1, \"tasks\": [{\"title\": \"Vieja\", \"description\": \"\", \"timestamp\": 5}]}";
+
+        TaskTransfer.importTasks(helper, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                TaskTransfer.FORMAT_JSON, null);
+
+        assertEquals("Vieja", helper.getAllTasks().get(0).getTitle());
+        assertTrue(helper.getArchivePage(null, 10).isEmpty());
+    }
+
+    @Test
+    public void malformedFile_keepsCommittedBatches() {
+        StringBuilder csv = new StringBuilder(TaskCsv.HEADER_V1).append('\n');
+        for (int i = 0; i < BATCHED_ROW_COUNT; i++) {
+            csv.append("Tarea ").append(i).append(",,").append(BASE_TIME + i).append('\n');
+        }
+        csv.append("Rota,,no es una fecha\n");
+        List<Integer> progress = new ArrayList<>();
+
+        try {
+            TaskTransfer.importTasks(helper, new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                    TaskTransfer.FORMAT_CSV, progress::add);
+            fail("The malformed row should stop the import");
+        } catch (IOException expected) {
+            // The first two batches were committed, the rows of the failed third batch were rolled back
+            assertEquals(Arrays.asList(TaskTransfer.BATCH_SIZE, 2 * TaskTransfer.BATCH_SIZE), progress);
+            List<Task> tasks = helper.getAllTasks();
+            assertEquals(2 * TaskTransfer.BATCH_SIZE, tasks.size());
+            assertEquals("Tarea " + (2 * TaskTransfer.BATCH_SIZE - 1), tasks.get(tasks.size() - 1).getTitle());
+        }
+    }
+
+    @Test
+    public void severalBatches_roundTripEveryRow() throws IOException {
+        List<Task> tasks = new ArrayList<>(BATCHED_ROW_COUNT);
+        for (int i = 0; i < BATCHED_ROW_COUNT; i++) {
+            tasks.add(new Task(0, "Tarea " + i, "Descripción de la tarea " + i, BASE_TIME + i * 60_000L));
+        }
+        helper.addTasks(tasks);
+
+        for (int format : new int[]{TaskTransfer.FORMAT_JSON, TaskTransfer.FORMAT_CSV}) {
+            List<Integer> exportProgress = new ArrayList<>();
+            TaskTransfer.Result exported = TaskTransfer.exportTasks(helper, new FileOutputStream(file), format,
+                    exportProgress::add);
+            clearTasks();
+            List<Integer> importProgress = new ArrayList<>();
+            TaskTransfer.Result imported = TaskTransfer.importTasks(helper, new FileInputStream(file), format,
+                    importProgress::add);
+
+            assertEquals(BATCHED_ROW_COUNT, exported.getRows());
+            assertEquals(BATCHED_ROW_COUNT, imported.getRows());
+            assertEquals(Integer.valueOf(BATCHED_ROW_COUNT), exportProgress.get(exportProgress.size() - 1));
+            // One notification per committed batch, the last one partly filled
+            assertEquals(Arrays.asList(TaskTransfer.BATCH_SIZE, 2 * TaskTransfer.BATCH_SIZE, BATCHED_ROW_COUNT),
+                    importProgress);
+            List<Task> stored = helper.getAllTasks();
+            assertEquals(BATCHED_ROW_COUNT, stored.size());
+            for (int i = 0; i < BATCHED_ROW_COUNT; i++) {
+                assertEquals("Tarea " + i, stored.get(i).getTitle());
+                assertEquals("Descripción de la tarea " + i, stored.get(i).getDescription());
+                assertEquals(BASE_TIME + i * 60_000L, stored.get(i).getTimestamp());
+            }
+        }
+    }
+
+    private void clearTasks() {
+        helper.getWritableDatabase().delete("tasks", null, null);
+        helper.getWritableDatabase().delete("task_series", null, null);
+    }
+}
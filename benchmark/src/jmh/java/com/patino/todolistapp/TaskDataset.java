@@ -0,0 +1,47 @@
+package com.patino.todolistapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates deterministic task lists for the benchmarks.
+ *
+ * The same size and seed always produce the same tasks, so results from different machines and runs compare the
+ * same work. Task times are spread over a month around a fixed clock, which gives a realistic mix of overdue,
+ * due-soon and on-time tasks, with some tasks sharing a timestamp.
+ */
+final class TaskDataset {
+    static final long NOW = 1_700_000_000_000L; // Fixed clock the datasets are built around
+    static final long SEED = 42;
+
+    private static final long SPREAD_MILLIS = 30L * 24 * 60 * 60 * 1000;
+    private static final long MINUTE_MILLIS = 60 * 1000;
+    private static final String[] WORDS = {
+            "comprar", "llamar", "revisar", "enviar", "pagar", "reunión", "informe", "médico", "correo", "proyecto"
+    };
+
+    private TaskDataset() {
+    }
+
+    /**
+     * Generates a dataset.
+     *
+     * @param size The number of tasks to generate.
+     * @param seed The seed of the random generator.
+     * @return The tasks, in insertion (ID) order rather than time order.
+     */
+    static List<Task> generate(int size, long seed) {
+        Random random = new Random(seed);
+        List<Task> tasks = new ArrayList<>(size);
+        StringBuilder title = new StringBuilder();
+        for (int id = 1; id <= size; id++) {
+            // Minute resolution, like tasks picked in the date and time dialogs
+            long offsetMinutes = (long) (random.nextDouble() * 2 * SPREAD_MILLIS / MINUTE_MILLIS) - SPREAD_MILLIS / MINUTE_MILLIS;
+            title.setLength(0);
+            title.append(WORDS[random.nextInt(WORDS.length)]).append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            tasks.add(new Task(id, title.toString(), "Tarea " + id, NOW + offsetMinutes * MINUTE_MILLIS));
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,57 @@
+package com.patino.todolistapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ordering tasks by due time and computing their reminder times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TaskScheduleBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() {
+        tasks = TaskDataset.generate(size, TaskDataset.SEED);
+    }
+
+    @Benchmark
+    public List<Task> sortByDueTime() {
+        List<Task> sorted = new ArrayList<>(tasks);
+        Collections.sort(sorted, TaskSchedule.BY_DUE_TIME);
+        return sorted;
+    }
+
+    /**
+     * Finds the earliest reminder that can still be scheduled, the in-memory version of what ReminderScheduler asks
+     * the database for.
+     */
+    @Benchmark
+    public long nextReminderTime() {
+        long firstRemindable = TaskSchedule.firstRemindableTaskTime(TaskDataset.NOW);
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < tasks.size(); i++) {
+            long taskTime = tasks.get(i).getTimestamp();
+            if (taskTime > firstRemindable) {
+                next = Math.min(next, TaskSchedule.reminderTime(taskTime));
+            }
+        }
+        return next;
+    }
+}
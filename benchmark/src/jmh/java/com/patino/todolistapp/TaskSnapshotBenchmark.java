@@ -0,0 +1,67 @@
+package com.patino.todolistapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a TaskSnapshot with a sorted List of Task objects: building it, and finding the first task after a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TaskSnapshotBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Task> sortedTasks;
+    private TaskSnapshot snapshot;
+    private long probe;
+
+    @Setup
+    public void setUp() {
+        sortedTasks = new ArrayList<>(TaskDataset.generate(size, TaskDataset.SEED));
+        Collections.sort(sortedTasks, TaskSchedule.BY_DUE_TIME);
+        snapshot = build(sortedTasks);
+        probe = TaskSchedule.firstRemindableTaskTime(TaskDataset.NOW);
+    }
+
+    @Benchmark
+    public TaskSnapshot buildSnapshot() {
+        return build(sortedTasks);
+    }
+
+    @Benchmark
+    public int firstAfter_snapshot() {
+        return snapshot.indexOfFirstAfter(probe);
+    }
+
+    @Benchmark
+    public int firstAfter_listScan() {
+        for (int i = 0; i < sortedTasks.size(); i++) {
+            if (sortedTasks.get(i).getTimestamp() > probe) {
+                return i;
+            }
+        }
+        return sortedTasks.size();
+    }
+
+    private static TaskSnapshot build(List<Task> tasks) {
+        TaskSnapshot.Builder builder = new TaskSnapshot.Builder(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            builder.add(task.getId(), task.getTimestamp(), task.getTitle());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.patino.todolistapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-task work of the task list: classifying every task and finding its next status transition.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TaskStatusBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() {
+        tasks = TaskDataset.generate(size, TaskDataset.SEED);
+    }
+
+    @Benchmark
+    public int classifyAll() {
+        int overdue = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            if (TaskStatus.classify(tasks.get(i).getTimestamp(), TaskDataset.NOW) == TaskStatus.OVERDUE) {
+                overdue++;
+            }
+        }
+        return overdue;
+    }
+
+    @Benchmark
+    public long nextTransitionOfAll() {
+        long earliest = TaskStatus.NO_TRANSITION;
+        for (int i = 0; i < tasks.size(); i++) {
+            earliest = Math.min(earliest, TaskStatus.nextTransition(tasks.get(i).getTimestamp(), TaskDataset.NOW));
+        }
+        return earliest;
+    }
+}
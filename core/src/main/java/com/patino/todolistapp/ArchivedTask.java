@@ -0,0 +1,31 @@
+package com.patino.todolistapp;
+
+/**
+ * A task that was moved out of the active tasks table, either because the user marked it done or because its time
+ * passed long enough ago.
+ */
+public class ArchivedTask {
+    private final Task task;
+    private final boolean completed;
+    private final long archivedTimestamp;
+
+    // Class Constructor
+    public ArchivedTask(Task task, boolean completed, long archivedTimestamp) {
+        this.task = task;
+        this.completed = completed;
+        this.archivedTimestamp = archivedTimestamp;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    // Whether the user marked the task done, rather than letting its time pass
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public long getArchivedTimestamp() {
+        return archivedTimestamp;
+    }
+}
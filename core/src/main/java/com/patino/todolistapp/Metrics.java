@@ -0,0 +1,255 @@
+package com.patino.todolistapp;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide registry of performance counters and latency histograms.
+ *
+ * Metrics are registered once, usually into static final fields of the class that records them, so the hot path never
+ * looks anything up. Recording is lock-free, and while the registry is disabled it costs a single volatile read:
+ *
+ * <pre>
+ * long start = Metrics.startTimer();
+ * ...
+ * LATENCY.stopTimer(start);
+ * </pre>
+ */
+public final class Metrics {
+    private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off. Values recorded so far are kept.
+     *
+     * @param enabled True to record metrics.
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Returns the counter with the given name, registering it on first use.
+     *
+     * @param name The name of the counter, such as "db.rowsRead".
+     * @return The shared counter.
+     */
+    public static Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the latency histogram with the given name, registering it on first use.
+     *
+     * @param name The name of the histogram, such as "db.getTasksPage".
+     * @return The shared histogram.
+     */
+    public static Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The start time to pass to Histogram.stopTimer(), or 0 when recording is disabled.
+     */
+    public static long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public static void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Writes every metric in a readable form, sorted by name.
+     *
+     * @param writer The writer to print to.
+     * @param prefix The indentation of every line.
+     */
+    public static void dump(PrintWriter writer, String prefix) {
+        writer.print(prefix);
+        writer.println(enabled ? "Recording" : "Disabled");
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            writer.print(prefix);
+            writer.println(entry.getKey() + " = " + entry.getValue().get());
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            long count = histogram.getCount();
+            writer.print(prefix);
+            if (count == 0) {
+                writer.println(entry.getKey() + " count=0");
+                continue;
+            }
+            writer.println(String.format(Locale.ROOT, "%s count=%d mean=%.1fus p50<=%s p95<=%s p99<=%s",
+                    entry.getKey(), count, histogram.getMeanMicros(), formatBound(histogram.getPercentileMicros(0.5)),
+                    formatBound(histogram.getPercentileMicros(0.95)), formatBound(histogram.getPercentileMicros(0.99))));
+        }
+    }
+
+    private static String formatBound(long micros) {
+        return micros == Long.MAX_VALUE ? "inf" : micros + "us";
+    }
+
+    /**
+     * A monotonically increasing count of events.
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {
+        }
+
+        public void increment() {
+            if (enabled) {
+                value.increment();
+            }
+        }
+
+        public void add(long amount) {
+            if (enabled) {
+                value.add(amount);
+            }
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        void reset() {
+            value.reset();
+        }
+    }
+
+    /**
+     * A latency histogram with fixed buckets, from 50 microseconds up to 1 second and an overflow bucket.
+     *
+     * Percentiles are reported as the upper bound of the bucket they fall in.
+     */
+    public static final class Histogram {
+        // Upper bounds of the buckets, in microseconds; the last bucket holds everything slower
+        static final long[] BUCKET_BOUNDS_MICROS = {
+                50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000
+        };
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+        private final LongAdder totalNanos = new LongAdder();
+
+        private Histogram() {
+        }
+
+        /**
+         * Records the time elapsed since a start time returned by Metrics.startTimer().
+         *
+         * @param startNanos The start time, or 0 if recording was disabled when the operation started.
+         */
+        public void stopTimer(long startNanos) {
+            if (startNanos != 0) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        /**
+         * Records one latency.
+         *
+         * @param nanos The latency in nanoseconds.
+         */
+        public void record(long nanos) {
+            if (!enabled) {
+                return;
+            }
+            long micros = nanos / 1000;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MICROS.length && micros > BUCKET_BOUNDS_MICROS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            totalNanos.add(nanos);
+        }
+
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        public long getBucketCount(int bucket) {
+            return buckets.get(bucket);
+        }
+
+        public double getMeanMicros() {
+            long count = getCount();
+            return count == 0 ? 0 : totalNanos.sum() / 1000.0 / count;
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding a percentile.
+         *
+         * @param fraction The percentile as a fraction, such as 0.95.
+         * @return The bucket bound in microseconds, Long.MAX_VALUE for the overflow bucket, or 0 if nothing was recorded.
+         */
+        public long getPercentileMicros(double fraction) {
+            long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return BUCKET_BOUNDS_MICROS[i];
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            totalNanos.reset();
+        }
+    }
+}
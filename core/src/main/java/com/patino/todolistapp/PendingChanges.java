@@ -0,0 +1,173 @@
+package com.patino.todolistapp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Task edits and deletions that are already shown to the user but not yet written to the database.
+ *
+ * Changes to the same task are coalesced, so each task is written at most once per batch: a later edit replaces an
+ * earlier one, and a deletion hides any edit queued before it. Until the batch is taken with drain(), a deletion can
+ * be undone without the database ever seeing it; the edit queued before it, if any, is kept.
+ *
+ * Not thread-safe; a drained batch is never modified again, so it can be read from any thread.
+ */
+public final class PendingChanges {
+    private Map<Integer, Task> updates = new LinkedHashMap<>();
+    private Map<Integer, Task> deletes = new LinkedHashMap<>(); // The tasks as they were shown, for undo
+
+    /**
+     * Queues an edit, replacing any edit of the same task queued before.
+     *
+     * @param task The task with its new values; an edit of a task pending deletion is ignored.
+     */
+    public void update(Task task) {
+        if (!deletes.containsKey(task.getId())) {
+            updates.put(task.getId(), task);
+        }
+    }
+
+    /**
+     * Queues a deletion.
+     *
+     * @param task The task as it was shown when it was deleted.
+     */
+    public void delete(Task task) {
+        Task updated = updates.get(task.getId());
+        deletes.put(task.getId(), updated != null ? updated : task);
+    }
+
+    /**
+     * Cancels every deletion queued since the last drain().
+     *
+     * @return The tasks that are no longer deleted, with their queued edits applied, in the order they were deleted.
+     */
+    public List<Task> undoDeletes() {
+        List<Task> restored = new ArrayList<>(deletes.values());
+        deletes.clear();
+        return restored;
+    }
+
+    /**
+     * Returns the queued edit of a task.
+     *
+     * @param id The ID of the task.
+     * @return The task with its new values, or null if it has no queued edit or is pending deletion.
+     */
+    public Task getUpdate(int id) {
+        return deletes.containsKey(id) ? null : updates.get(id);
+    }
+
+    public int getDeleteCount() {
+        return deletes.size();
+    }
+
+    public boolean isEmpty() {
+        return updates.isEmpty() && deletes.isEmpty();
+    }
+
+    /**
+     * Takes every queued change as a batch to be written, leaving this queue empty.
+     *
+     * @return The batch.
+     */
+    public PendingChanges drain() {
+        PendingChanges batch = new PendingChanges();
+        batch.updates = updates;
+        batch.deletes = deletes;
+        updates = new LinkedHashMap<>();
+        deletes = new LinkedHashMap<>();
+        return batch;
+    }
+
+    /**
+     * Returns the edited tasks, to be written with a single transaction together with getDeletedIds().
+     */
+    public List<Task> getUpdates() {
+        List<Task> tasks = new ArrayList<>(updates.size());
+        for (Task task : updates.values()) {
+            if (!deletes.containsKey(task.getId())) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    public List<Integer> getDeletedIds() {
+        return new ArrayList<>(deletes.keySet());
+    }
+
+    /**
+     * Shows a list read from the database as it will be once the changes are written: deleted tasks are dropped
+     * and edited tasks are replaced, in place, by their new values.
+     *
+     * @param tasks The tasks read from the database.
+     * @return The tasks with the changes applied; the same list when nothing is queued.
+     */
+    public List<Task> applyTo(List<Task> tasks) {
+        if (isEmpty() || tasks.isEmpty()) {
+            return tasks;
+        }
+        List<Task> applied = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (deletes.containsKey(task.getId())) {
+                continue;
+            }
+            Task updated = updates.get(task.getId());
+            applied.add(updated != null ? updated : task);
+        }
+        return applied;
+    }
+
+    /**
+     * Shows one page of the ordered task list as it will be once the changes are written.
+     *
+     * Deleted tasks are dropped, and an edited task is taken out of the place it was read from and put back where its
+     * new time sorts, if that falls within the page. An edit that moves a task to another page shows up when that
+     * page is read, so the pages agree with each other before the changes reach the database.
+     *
+     * @param tasks The page read from the database, in (timestamp, ID) order.
+     * @param after The last task of the previous page, or null for the first page.
+     * @param hasMore Whether more pages follow; the last page also takes every edit that sorts after it.
+     * @return The page with the changes applied; the same list when nothing is queued.
+     */
+    public List<Task> applyToPage(List<Task> tasks, Task after, boolean hasMore) {
+        if (isEmpty()) {
+            return tasks;
+        }
+        Task last = hasMore && !tasks.isEmpty() ? tasks.get(tasks.size() - 1) : null;
+        List<Task> applied = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (!deletes.containsKey(task.getId()) && !updates.containsKey(task.getId())) {
+                applied.add(task);
+            }
+        }
+        for (Task task : getUpdates()) {
+            if ((after == null || sortsAfter(task, after)) && (last == null || !sortsAfter(task, last))) {
+                int index = applied.size();
+                while (index > 0 && sortsAfter(applied.get(index - 1), task)) {
+                    index--;
+                }
+                applied.add(index, task);
+            }
+        }
+        return applied;
+    }
+
+    private static boolean sortsAfter(Task task, Task other) {
+        return task.getTimestamp() > other.getTimestamp()
+                || task.getTimestamp() == other.getTimestamp() && task.getId() > other.getId();
+    }
+
+    /**
+     * Returns an independent copy, for applying the queued changes on another thread.
+     */
+    public PendingChanges copy() {
+        PendingChanges copy = new PendingChanges();
+        copy.updates.putAll(updates);
+        copy.deletes.putAll(deletes);
+        return copy;
+    }
+}
@@ -0,0 +1,90 @@
+package com.patino.todolistapp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Describes what a write changed, so observers can refresh only the affected rows instead of reloading everything.
+ *
+ * A change set lists the tasks that were added or edited, with their new values, and the IDs of the tasks that
+ * were deleted. Recurring tasks are reported as a whole with SERIES, since their occurrences are computed rather
+ * than stored, and writes too large or too uncertain to list, such as an import, are reported as ALL.
+ *
+ * Immutable.
+ */
+public final class TaskChangeSet {
+    // Recurring tasks were added or deleted; every occurrence may have appeared or disappeared
+    public static final TaskChangeSet SERIES = new TaskChangeSet(Collections.<Task>emptyList(),
+            Collections.<Integer>emptySet(), true, false);
+    // Any task may have changed
+    public static final TaskChangeSet ALL = new TaskChangeSet(Collections.<Task>emptyList(),
+            Collections.<Integer>emptySet(), true, true);
+
+    private final List<Task> changedTasks;
+    private final Set<Integer> deletedIds;
+    private final boolean seriesChanged;
+    private final boolean allChanged;
+
+    // Class Constructor
+    private TaskChangeSet(List<Task> changedTasks, Set<Integer> deletedIds, boolean seriesChanged, boolean allChanged) {
+        this.changedTasks = changedTasks;
+        this.deletedIds = deletedIds;
+        this.seriesChanged = seriesChanged;
+        this.allChanged = allChanged;
+    }
+
+    /**
+     * Creates a change set for stored tasks.
+     *
+     * @param changedTasks The tasks that were added or edited, with their new values.
+     * @param deletedIds The IDs of the tasks that were deleted.
+     * @return The change set.
+     */
+    public static TaskChangeSet of(Collection<Task> changedTasks, Collection<Integer> deletedIds) {
+        return new TaskChangeSet(Collections.unmodifiableList(new ArrayList<>(changedTasks)),
+                Collections.unmodifiableSet(new LinkedHashSet<>(deletedIds)), false, false);
+    }
+
+    public static TaskChangeSet changed(Task task) {
+        return new TaskChangeSet(Collections.singletonList(task), Collections.<Integer>emptySet(), false, false);
+    }
+
+    public static TaskChangeSet deleted(int id) {
+        return new TaskChangeSet(Collections.<Task>emptyList(), Collections.singleton(id), false, false);
+    }
+
+    public List<Task> getChangedTasks() {
+        return changedTasks;
+    }
+
+    public Set<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    /**
+     * Returns the IDs of every stored task whose old row, if shown, must be removed or replaced.
+     */
+    public Set<Integer> getTouchedIds() {
+        Set<Integer> ids = new LinkedHashSet<>(deletedIds);
+        for (Task task : changedTasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    public boolean isSeriesChanged() {
+        return seriesChanged;
+    }
+
+    public boolean isAllChanged() {
+        return allChanged;
+    }
+
+    public boolean isEmpty() {
+        return changedTasks.isEmpty() && deletedIds.isEmpty() && !seriesChanged && !allChanged;
+    }
+}
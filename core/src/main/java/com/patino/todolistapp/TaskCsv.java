@@ -0,0 +1,335 @@
+package com.patino.todolistapp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Writes and reads tasks as CSV (RFC 4180), one row at a time.
+ *
+ * The file starts with the HEADER row, followed by one row per task. Fields holding a comma, a quote or a line break
+ * are quoted, so titles and descriptions survive any content. Neither side ever holds more than one row, so files of
+ * any size can be streamed.
+ *
+ * The state column is empty for tasks still to do, and STATE_DONE or STATE_EXPIRED for archived tasks, which also
+ * have the time they were archived. The repeat column is empty for single tasks; a recurring task is one row whose
+ * timestamp is its start and whose repeat rule reads like "weekly;interval=2;count=10;until=1700000000000", the count
+ * and the end time being left out when the task repeats forever. Files written before the archive or recurring tasks
+ * existed, with the HEADER_V1 or HEADER_V2 columns only, are still read.
+ */
+public final class TaskCsv {
+    public static final String HEADER = "title,description,timestamp,state,archived_timestamp,repeat";
+    public static final String HEADER_V2 = "title,description,timestamp,state,archived_timestamp";
+    public static final String HEADER_V1 = "title,description,timestamp";
+    public static final String STATE_DONE = "done";
+    public static final String STATE_EXPIRED = "expired";
+    // Names of TaskSeries.DAILY, WEEKLY and MONTHLY, by frequency
+    private static final String[] FREQUENCY_NAMES = {"daily", "weekly", "monthly"};
+    private static final int FIELD_COUNT = 6;
+    private static final int FIELD_COUNT_V2 = 5;
+    private static final int FIELD_COUNT_V1 = 3;
+
+    private TaskCsv() {
+    }
+
+    /**
+     * Writes the header row.
+     *
+     * @param writer The writer to write to; buffering is up to the caller.
+     */
+    public static void writeHeader(Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes one task as a row.
+     *
+     * @param writer The writer to write to; buffering is up to the caller.
+     * @param title The title of the task; null is written as an empty field.
+     * @param description The description of the task; null is written as an empty field.
+     * @param timestamp The timestamp of the task.
+     */
+    public static void writeRow(Writer writer, String title, String description, long timestamp) throws IOException {
+        writeTask(writer, title, description, timestamp);
+        writer.write(",,,\r\n");
+    }
+
+    /**
+     * Writes one archived task as a row.
+     *
+     * @param writer The writer to write to; buffering is up to the caller.
+     * @param title The title of the task; null is written as an empty field.
+     * @param description The description of the task; null is written as an empty field.
+     * @param timestamp The timestamp of the task.
+     * @param completed Whether the user marked the task done, rather than letting its time pass.
+     * @param archivedTimestamp The time the task was archived.
+     */
+    public static void writeArchivedRow(Writer writer, String title, String description, long timestamp,
+                                        boolean completed, long archivedTimestamp) throws IOException {
+        writeTask(writer, title, description, timestamp);
+        writer.write(',');
+        writer.write(completed ? STATE_DONE : STATE_EXPIRED);
+        writer.write(',');
+        writer.write(Long.toString(archivedTimestamp));
+        writer.write(",\r\n");
+    }
+
+    /**
+     * Writes one recurring task as a row.
+     *
+     * @param writer The writer to write to; buffering is up to the caller.
+     * @param series The recurring task; its start time goes in the timestamp column.
+     */
+    public static void writeSeriesRow(Writer writer, TaskSeries series) throws IOException {
+        writeTask(writer, series.getTitle(), series.getDescription(), series.getStartTime());
+        writer.write(",,,");
+        writer.write(FREQUENCY_NAMES[series.getFrequency()]);
+        writer.write(";interval=");
+        writer.write(Integer.toString(series.getInterval()));
+        if (series.getCount() != TaskSeries.UNLIMITED) {
+            writer.write(";count=");
+            writer.write(Integer.toString(series.getCount()));
+        }
+        if (series.getUntilTime() != TaskSeries.NO_END) {
+            writer.write(";until=");
+            writer.write(Long.toString(series.getUntilTime()));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Returns the name a frequency is written with.
+     *
+     * @param frequency TaskSeries.DAILY, WEEKLY or MONTHLY.
+     * @return "daily", "weekly" or "monthly".
+     */
+    public static String frequencyName(int frequency) {
+        return FREQUENCY_NAMES[frequency];
+    }
+
+    /**
+     * Reads a frequency back from its name.
+     *
+     * @param name The name, as returned by frequencyName().
+     * @return TaskSeries.DAILY, WEEKLY or MONTHLY, or -1 if the name is unknown.
+     */
+    public static int parseFrequency(String name) {
+        for (int i = 0; i < FREQUENCY_NAMES.length; i++) {
+            if (FREQUENCY_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void writeTask(Writer writer, String title, String description, long timestamp) throws IOException {
+        writeField(writer, title);
+        writer.write(',');
+        writeField(writer, description);
+        writer.write(',');
+        writer.write(Long.toString(timestamp));
+    }
+
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Reads tasks back one row at a time.
+     *
+     * After next() returns a task, isArchived(), isCompleted() and getArchivedTimestamp() describe its state, and
+     * getSeries() tells whether it repeats.
+     */
+    public static final class RowReader {
+        private final Reader in;
+        private final StringBuilder field = new StringBuilder();
+        private final String[] fields = new String[FIELD_COUNT];
+        private int fieldCount; // Fields per row, as set by the header; 0 while the header is read
+        private int row; // Rows read so far, including the header, for error messages
+        private boolean archived;
+        private boolean completed;
+        private long archivedTimestamp;
+        private TaskSeries series;
+
+        /**
+         * Creates a reader and checks the header row.
+         *
+         * @param in The reader to read from. It is read one character at a time, so it should be buffered.
+         * @throws IOException If the input does not start with HEADER, HEADER_V2 or HEADER_V1.
+         */
+        public RowReader(Reader in) throws IOException {
+            this.in = in;
+            int count = readRecord();
+            StringBuilder header = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                header.append(i > 0 ? "," : "").append(fields[i]);
+            }
+            if (HEADER.contentEquals(header)) {
+                fieldCount = FIELD_COUNT;
+            } else if (HEADER_V2.contentEquals(header)) {
+                fieldCount = FIELD_COUNT_V2;
+            } else if (HEADER_V1.contentEquals(header)) {
+                fieldCount = FIELD_COUNT_V1;
+            } else {
+                throw new IOException("Not a task CSV file: the first row must be " + HEADER);
+            }
+        }
+
+        /**
+         * Reads the next task.
+         *
+         * @return The task, with ID 0, or null at the end of the input.
+         * @throws IOException If the row is malformed.
+         */
+        public Task next() throws IOException {
+            if (readRecord() == 0) {
+                return null;
+            }
+            long timestamp = parseTime(fields[2]);
+            String state = fieldCount >= FIELD_COUNT_V2 ? fields[3].trim() : "";
+            archived = !state.isEmpty();
+            completed = state.equals(STATE_DONE);
+            if (archived && !completed && !state.equals(STATE_EXPIRED)) {
+                throw new IOException("Row " + row + ": invalid state '" + state + "'");
+            }
+            archivedTimestamp = archived ? parseTime(fields[4]) : 0;
+            String repeat = fieldCount == FIELD_COUNT ? fields[5].trim() : "";
+            if (archived && !repeat.isEmpty()) {
+                throw new IOException("Row " + row + ": an archived task cannot repeat");
+            }
+            series = repeat.isEmpty() ? null : parseSeries(repeat, timestamp);
+            return new Task(0, fields[0], fields[1], timestamp);
+        }
+
+        // Whether the task returned last is archived
+        public boolean isArchived() {
+            return archived;
+        }
+
+        // Whether the archived task returned last was marked done, rather than letting its time pass
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public long getArchivedTimestamp() {
+            return archivedTimestamp;
+        }
+
+        // The recurring task returned last, with ID 0, or null if it does not repeat
+        public TaskSeries getSeries() {
+            return series;
+        }
+
+        /**
+         * Reads the repeat rule of the current row.
+         */
+        private TaskSeries parseSeries(String repeat, long startTime) throws IOException {
+            String[] parts = repeat.split(";");
+            int frequency = parseFrequency(parts[0].trim());
+            int interval = 1;
+            int count = TaskSeries.UNLIMITED;
+            long untilTime = TaskSeries.NO_END;
+            try {
+                for (int i = 1; i < parts.length; i++) {
+                    String part = parts[i].trim();
+                    if (part.startsWith("interval=")) {
+                        interval = Integer.parseInt(part.substring("interval=".length()));
+                    } else if (part.startsWith("count=")) {
+                        count = Integer.parseInt(part.substring("count=".length()));
+                    } else if (part.startsWith("until=")) {
+                        untilTime = Long.parseLong(part.substring("until=".length()));
+                    } else {
+                        frequency = -1;
+                    }
+                }
+                return new TaskSeries(0, fields[0], fields[1], startTime, frequency, interval, untilTime, count);
+            } catch (IllegalArgumentException e) { // Also thrown for numbers that do not parse
+                throw new IOException("Row " + row + ": invalid repeat rule '" + repeat + "'");
+            }
+        }
+
+        private long parseTime(String value) throws IOException {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Row " + row + ": invalid timestamp '" + value + "'");
+            }
+        }
+
+        /**
+         * Reads one record into fields, skipping blank lines.
+         *
+         * @return The number of fields read, or 0 at the end of the input.
+         */
+        private int readRecord() throws IOException {
+            int c = in.read();
+            while (c == '\r' || c == '\n') {
+                c = in.read();
+            }
+            if (c == -1) {
+                return 0;
+            }
+            row++;
+            int count = 0;
+            while (true) {
+                field.setLength(0);
+                if (c == '"') {
+                    while (true) {
+                        c = in.read();
+                        if (c == -1) {
+                            throw new IOException("Row " + row + ": unterminated quoted field");
+                        }
+                        if (c == '"') {
+                            c = in.read();
+                            if (c != '"') {
+                                break; // Closing quote; c is the character after it
+                            }
+                        }
+                        field.append((char) c);
+                    }
+                } else {
+                    while (c != ',' && c != '\r' && c != '\n' && c != -1) {
+                        field.append((char) c);
+                        c = in.read();
+                    }
+                }
+                if (count == FIELD_COUNT) {
+                    throw new IOException("Row " + row + ": more than " + FIELD_COUNT + " fields");
+                }
+                fields[count++] = field.toString();
+                if (c != ',') {
+                    break; // End of line or of input
+                }
+                c = in.read();
+            }
+            if (c != '\r' && c != '\n' && c != -1) {
+                throw new IOException("Row " + row + ": unexpected character after a quoted field");
+            }
+            if (fieldCount != 0 && count != fieldCount) {
+                throw new IOException("Row " + row + ": expected " + fieldCount + " fields, found " + count);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.patino.todolistapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary copy of one page of the task list, read through a memory map so the list can be shown before the
+ * database is opened.
+ *
+ * Layout, little-endian:
+ * <pre>
+ * header   int magic, int formatVersion, int limit, int hasMore, int count, int stringChars,
+ *          long earliestOccurrence, long crc32
+ * records  count fixed-width records: int id, long timestamp, int titleOffset, int titleLength,
+ *          int descriptionOffset, int descriptionLength (offsets and lengths in chars, length -1 for null)
+ * strings  stringChars UTF-16 chars holding every title and description back to back
+ * </pre>
+ * The checksum covers everything after the header. A file written by another format version, cut short or with a
+ * bad checksum is rejected, and the caller falls back to the database.
+ */
+public final class TaskPageFile {
+    static final int MAGIC = 0x54504746; // "TPGF"
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 6 * 4 + 2 * 8;
+    static final int RECORD_BYTES = 4 + 8 + 4 * 4;
+
+    private TaskPageFile() {
+    }
+
+    /**
+     * Writes a page to a file, replacing it atomically: the page goes to a temporary file first, which is then
+     * renamed over the old one, so a reader never sees a half-written file.
+     *
+     * @param file The file to write.
+     * @param page The page, as loaded with the given limit.
+     * @param limit The number of rows that were asked for when the page was loaded.
+     */
+    public static void write(File file, TaskTimeline.Page<Task> page, int limit) throws IOException {
+        ByteBuffer buffer = encode(page.getItems(), limit, page.hasMore(), page.getNext().getEarliestOccurrence());
+        File temporary = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile output = new RandomAccessFile(temporary, "rw")) {
+            output.setLength(0);
+            FileChannel channel = output.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        if (!temporary.renameTo(file)) {
+            temporary.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    /**
+     * Reads a page back through a read-only memory map.
+     *
+     * @param file The file to read.
+     * @param limit The number of rows the caller would load; a page saved with another limit is not used.
+     * @return The page, or null if the file does not exist or was saved with another limit.
+     * @throws IOException If the file is corrupt or was written by another format version.
+     */
+    public static TaskTimeline.Page<Task> read(File file, int limit) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            FileChannel channel = input.getChannel();
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(map, limit);
+        }
+    }
+
+    /**
+     * Encodes a page into the file layout.
+     */
+    static ByteBuffer encode(List<Task> tasks, int limit, boolean hasMore, long earliestOccurrence) {
+        int stringChars = 0;
+        for (Task task : tasks) {
+            stringChars += length(task.getTitle()) + length(task.getDescription());
+        }
+        int bodyBytes = tasks.size() * RECORD_BYTES + stringChars * 2;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(limit).putInt(hasMore ? 1 : 0)
+                .putInt(tasks.size()).putInt(stringChars).putLong(earliestOccurrence)
+                .putLong(0); // The checksum is filled in below
+
+        CharBuffer strings = ((ByteBuffer) buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                .position(HEADER_BYTES + tasks.size() * RECORD_BYTES)).asCharBuffer();
+        for (Task task : tasks) {
+            buffer.putInt(task.getId()).putLong(task.getTimestamp());
+            putString(buffer, strings, task.getTitle());
+            putString(buffer, strings, task.getDescription());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, bodyBytes);
+        buffer.putLong(HEADER_BYTES - 8, crc.getValue());
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Decodes and verifies a page in the file layout.
+     */
+    static TaskTimeline.Page<Task> decode(ByteBuffer source, int limit) throws IOException {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a task page file");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported task page format " + buffer.getInt(4));
+        }
+        if (buffer.getInt(8) != limit) {
+            return null;
+        }
+        boolean hasMore = buffer.getInt(12) != 0;
+        int count = buffer.getInt(16);
+        int stringChars = buffer.getInt(20);
+        long earliestOccurrence = buffer.getLong(24);
+        long expectedCrc = buffer.getLong(HEADER_BYTES - 8);
+        long bodyBytes = (long) count * RECORD_BYTES + (long) stringChars * 2;
+        if (count < 0 || stringChars < 0 || buffer.remaining() != HEADER_BYTES + bodyBytes) {
+            throw new IOException("Truncated task page file");
+        }
+
+        // Checked and decoded straight from the mapped pages, without copying the file
+        ByteBuffer records = ((ByteBuffer) buffer.position(HEADER_BYTES)).slice().order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(records.duplicate());
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException("Task page file checksum mismatch");
+        }
+
+        CharBuffer strings = ((ByteBuffer) records.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                .position(count * RECORD_BYTES)).asCharBuffer();
+        List<Task> tasks = new ArrayList<>(count);
+        Task lastTask = null;
+        Task lastOccurrence = null;
+        for (int i = 0; i < count; i++) {
+            int id = records.getInt();
+            long timestamp = records.getLong();
+            String title = getString(records, strings);
+            String description = getString(records, strings);
+            Task task = new Task(id, title, description, timestamp);
+            tasks.add(task);
+            if (TaskSeries.isOccurrenceId(id)) {
+                lastOccurrence = task;
+            } else {
+                lastTask = task;
+            }
+        }
+        return new TaskTimeline.Page<>(tasks, new TaskTimeline.Position(lastTask, lastOccurrence, earliestOccurrence),
+                hasMore);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static void putString(ByteBuffer records, CharBuffer strings, String value) {
+        records.putInt(strings.position());
+        if (value == null) {
+            records.putInt(-1);
+        } else {
+            records.putInt(value.length());
+            strings.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer records, CharBuffer strings) throws IOException {
+        int offset = records.getInt();
+        int length = records.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (offset < 0 || length < 0 || offset + length > strings.limit()) {
+            throw new IOException("Task page file string out of range");
+        }
+        char[] chars = new char[length];
+        ((CharBuffer) strings.duplicate().position(offset)).get(chars);
+        return new String(chars);
+    }
+}
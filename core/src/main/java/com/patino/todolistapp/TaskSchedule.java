@@ -0,0 +1,41 @@
+package com.patino.todolistapp;
+
+import java.util.Comparator;
+
+/**
+ * Reminder timing and task ordering rules, kept free of Android classes.
+ */
+public final class TaskSchedule {
+    public static final long REMINDER_OFFSET_MILLIS = 10 * 60 * 1000; // Reminders fire 10 minutes before the task
+
+    /**
+     * Orders tasks by their time, and tasks sharing a time by ID, the same order the task list uses.
+     */
+    public static final Comparator<Task> BY_DUE_TIME = (first, second) -> {
+        int byTime = Long.compare(first.getTimestamp(), second.getTimestamp());
+        return byTime != 0 ? byTime : Integer.compare(first.getId(), second.getId());
+    };
+
+    private TaskSchedule() {
+    }
+
+    /**
+     * Returns the time at which the reminder of a task fires.
+     *
+     * @param taskTime The timestamp of the task.
+     * @return The reminder time, 10 minutes before the task.
+     */
+    public static long reminderTime(long taskTime) {
+        return taskTime - REMINDER_OFFSET_MILLIS;
+    }
+
+    /**
+     * Returns the earliest task time whose reminder can still be scheduled.
+     *
+     * @param now The current time.
+     * @return Tasks after this time have a reminder in the future.
+     */
+    public static long firstRemindableTaskTime(long now) {
+        return now + REMINDER_OFFSET_MILLIS;
+    }
+}
@@ -0,0 +1,213 @@
+package com.patino.todolistapp;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * A recurring task: one stored rule from which the occurrences are computed on demand.
+ *
+ * Occurrences are numbered from 0, the start time. Occurrence n is the start time moved by n times the interval in
+ * local calendar units, always counted from the start, so a monthly series starting on the 31st falls on the last day
+ * of shorter months without drifting, and a daily series keeps its wall-clock time across DST changes.
+ *
+ * Occurrences are shown as tasks whose ID is the negated series ID (see toOccurrence()), which keeps them apart from
+ * stored tasks and gives them their own reminder alarm slot.
+ */
+public final class TaskSeries {
+    public static final int DAILY = 0;
+    public static final int WEEKLY = 1;
+    public static final int MONTHLY = 2;
+
+    public static final long NO_END = Long.MAX_VALUE; // Also returned when a series has no further occurrence
+    public static final int UNLIMITED = 0;
+
+    // Average length of one unit of each frequency, used to estimate an occurrence index before correcting it
+    private static final long[] APPROX_PERIOD_MILLIS = {86_400_000L, 7 * 86_400_000L, 2_629_746_000L};
+    private static final int[] CALENDAR_FIELDS = {Calendar.DAY_OF_MONTH, Calendar.WEEK_OF_YEAR, Calendar.MONTH};
+
+    private final int id;
+    private final String title;
+    private final String description;
+    private final long startTime;
+    private final int frequency;
+    private final int interval;
+    private final long untilTime;
+    private final int count;
+
+    //POJO Class Constructor
+    public TaskSeries(int id, String title, String description, long startTime, int frequency, int interval,
+                      long untilTime, int count) {
+        if (frequency < DAILY || frequency > MONTHLY) {
+            throw new IllegalArgumentException("Unknown frequency " + frequency);
+        }
+        if (interval < 1 || count < 0) {
+            throw new IllegalArgumentException("Invalid interval " + interval + " or count " + count);
+        }
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.startTime = startTime;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.untilTime = untilTime;
+        this.count = count;
+    }
+
+    //·········································GETTERS·················································
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public int getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public long getUntilTime() {
+        return untilTime;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Reads a repeat count as the user typed it.
+     *
+     * Only an empty text means the series repeats without limit; a typed count has to be at least 1, so that "0" is
+     * not taken for UNLIMITED.
+     *
+     * @param text The typed text.
+     * @return The count, UNLIMITED if the text is empty, or -1 if it is not a whole number of at least 1.
+     */
+    public static int parseCount(String text) {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return UNLIMITED;
+        }
+        try {
+            int count = Integer.parseInt(trimmed);
+            return count >= 1 ? count : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns whether a task ID belongs to an occurrence of a series rather than to a stored task.
+     */
+    public static boolean isOccurrenceId(int taskId) {
+        return taskId < 0;
+    }
+
+    /**
+     * Returns the ID of the series an occurrence ID belongs to.
+     */
+    public static int seriesIdOf(int occurrenceId) {
+        return -occurrenceId;
+    }
+
+    /**
+     * Computes the time of an occurrence, whether or not the series has ended by then.
+     *
+     * @param index The number of the occurrence, 0 being the start.
+     * @param zone The time zone whose calendar the series follows.
+     * @return The time of the occurrence.
+     */
+    public long getOccurrence(int index, TimeZone zone) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(startTime);
+        calendar.add(CALENDAR_FIELDS[frequency], index * interval);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Returns whether an occurrence is still part of the series.
+     *
+     * @param index The number of the occurrence.
+     * @param time The time of the occurrence.
+     */
+    public boolean includes(int index, long time) {
+        return (count == UNLIMITED || index < count) && time <= untilTime;
+    }
+
+    /**
+     * Finds the first occurrence at or after a time, ended or not.
+     *
+     * The index is estimated from the average period and then corrected by a step or two, so the cost does not
+     * depend on how far the time is from the start.
+     *
+     * @param time The time to look for.
+     * @param zone The time zone whose calendar the series follows.
+     * @return The index of the first occurrence whose time is not before the given time.
+     */
+    public int indexOfFirstAtOrAfter(long time, TimeZone zone) {
+        if (time <= startTime) {
+            return 0;
+        }
+        long estimate = (time - startTime) / (APPROX_PERIOD_MILLIS[frequency] * interval);
+        int index = (int) Math.min(estimate, Integer.MAX_VALUE / interval - 2);
+        while (index > 0 && getOccurrence(index - 1, zone) >= time) {
+            index--;
+        }
+        while (getOccurrence(index, zone) < time) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the time of the first occurrence strictly after a time.
+     *
+     * @param time The exclusive lower bound.
+     * @param zone The time zone whose calendar the series follows.
+     * @return The time of the next occurrence, or NO_END if the series has ended by then.
+     */
+    public long nextOccurrenceAfter(long time, TimeZone zone) {
+        if (time == Long.MAX_VALUE) {
+            return NO_END;
+        }
+        int index = indexOfFirstAtOrAfter(time + 1, zone);
+        long occurrence = getOccurrence(index, zone);
+        return includes(index, occurrence) ? occurrence : NO_END;
+    }
+
+    /**
+     * Returns the time of the last occurrence.
+     *
+     * @param zone The time zone whose calendar the series follows.
+     * @return The time of the last occurrence, or NO_END if the series repeats forever.
+     */
+    public long getEndTime(TimeZone zone) {
+        long end = untilTime;
+        if (count != UNLIMITED) {
+            end = Math.min(end, getOccurrence(count - 1, zone));
+        }
+        return end;
+    }
+
+    /**
+     * Creates the task shown for one occurrence.
+     *
+     * @param time The time of the occurrence.
+     * @return A task with the negated series ID as its ID.
+     */
+    public Task toOccurrence(long time) {
+        return new Task(-id, title, description, time);
+    }
+}
@@ -0,0 +1,183 @@
+package com.patino.todolistapp;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, column-oriented set of tasks, ordered by time and then by ID.
+ *
+ * IDs and timestamps are kept in parallel primitive arrays and every title is packed into one shared char array, so
+ * a snapshot costs a handful of objects however many tasks it holds, instead of a Task, two Strings and their
+ * arrays per task. Titles are only turned into Strings when they are read. Descriptions are not kept; load the task
+ * by ID when the full record is needed.
+ */
+public final class TaskSnapshot {
+    public static final TaskSnapshot EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final int[] ids;
+    private final long[] timestamps;
+    private final char[] titleChars;
+    private final int[] titleOffsets; // Title i spans titleOffsets[i] to titleOffsets[i + 1]
+
+    private TaskSnapshot(int size, int[] ids, long[] timestamps, char[] titleChars, int[] titleOffsets) {
+        this.size = size;
+        this.ids = ids;
+        this.timestamps = timestamps;
+        this.titleChars = titleChars;
+        this.titleOffsets = titleOffsets;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    /**
+     * Decodes the title of a task. A new String is created on every call, so callers that need it more than once
+     * should keep it.
+     *
+     * @param index The position of the task.
+     * @return The title; tasks stored without a title read as an empty title.
+     */
+    public String getTitle(int index) {
+        checkIndex(index);
+        return new String(titleChars, titleOffsets[index], titleOffsets[index + 1] - titleOffsets[index]);
+    }
+
+    /**
+     * Creates a Task for one position, for code that works with Task objects.
+     *
+     * @param index The position of the task.
+     * @return The task, with an empty description.
+     */
+    public Task getTask(int index) {
+        return new Task(getId(index), getTitle(index), "", getTimestamp(index));
+    }
+
+    /**
+     * Finds the first task at or after a time.
+     *
+     * @param time The time to look for.
+     * @return The position of the first task whose timestamp is not before the time, or size() if there is none.
+     */
+    public int indexOfFirstAtOrAfter(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first task strictly after a time.
+     *
+     * @param time The time to look for.
+     * @return The position of the first task whose timestamp is after the time, or size() if there is none.
+     */
+    public int indexOfFirstAfter(long time) {
+        return time == Long.MAX_VALUE ? size : indexOfFirstAtOrAfter(time + 1);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+    /**
+     * Builds a snapshot one task at a time. Tasks must be added in (timestamp, ID) order.
+     */
+    public static final class Builder {
+        private int size;
+        private int[] ids;
+        private long[] timestamps;
+        private char[] titleChars;
+        private int[] titleOffsets;
+
+        // Class Constructor
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            ids = new int[capacity];
+            timestamps = new long[capacity];
+            titleChars = new char[capacity * 16];
+            titleOffsets = new int[capacity + 1];
+        }
+
+        /**
+         * Adds a task whose title is held in a char buffer, such as one filled by a database cursor.
+         *
+         * @param id The ID of the task.
+         * @param timestamp The timestamp of the task, not before the previous one.
+         * @param title The buffer holding the title, or null if the task has no title.
+         * @param titleLength The number of title characters in the buffer.
+         * @return This builder.
+         */
+        public Builder add(int id, long timestamp, char[] title, int titleLength) {
+            if (size > 0 && (timestamp < timestamps[size - 1] || timestamp == timestamps[size - 1] && id <= ids[size - 1])) {
+                throw new IllegalArgumentException("Tasks must be added in (timestamp, id) order");
+            }
+            if (title == null) {
+                titleLength = 0;
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                titleOffsets = Arrays.copyOf(titleOffsets, capacity + 1);
+            }
+            int titleStart = titleOffsets[size];
+            if (titleStart + titleLength > titleChars.length) {
+                titleChars = Arrays.copyOf(titleChars, Math.max(titleChars.length * 2, titleStart + titleLength));
+            }
+            if (titleLength > 0) {
+                System.arraycopy(title, 0, titleChars, titleStart, titleLength);
+            }
+            ids[size] = id;
+            timestamps[size] = timestamp;
+            titleOffsets[size + 1] = titleStart + titleLength;
+            size++;
+            return this;
+        }
+
+        /**
+         * Adds a task.
+         *
+         * @param id The ID of the task.
+         * @param timestamp The timestamp of the task, not before the previous one.
+         * @param title The title of the task, or null.
+         * @return This builder.
+         */
+        public Builder add(int id, long timestamp, String title) {
+            return add(id, timestamp, title != null ? title.toCharArray() : null, title != null ? title.length() : 0);
+        }
+
+        /**
+         * Creates the snapshot, trimming the columns to the number of tasks added.
+         *
+         * @return The snapshot.
+         */
+        public TaskSnapshot build() {
+            return new TaskSnapshot(size, Arrays.copyOf(ids, size), Arrays.copyOf(timestamps, size),
+                    Arrays.copyOf(titleChars, titleOffsets[size]), Arrays.copyOf(titleOffsets, size + 1));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.patino.todolistapp;
+
+/**
+ * Classifies tasks by how close they are to their time.
+ *
+ * Plain Java, so the classification used by the task list can be tested and benchmarked on any JVM.
+ */
+public final class TaskStatus {
+    public static final int ON_TIME = 0;
+    public static final int DUE_SOON = 1; // 10 minutes or less remaining
+    public static final int OVERDUE = 2;
+
+    public static final long DUE_SOON_MILLIS = 10 * 60 * 1000;
+    public static final long NO_TRANSITION = Long.MAX_VALUE; // Overdue tasks never change status again
+
+    private TaskStatus() {
+    }
+
+    /**
+     * Classifies a task time against the current time.
+     *
+     * @param taskTime The timestamp of the task.
+     * @param now The current time.
+     * @return OVERDUE, DUE_SOON or ON_TIME.
+     */
+    public static int classify(long taskTime, long now) {
+        long timeDifference = taskTime - now;
+        if (timeDifference <= 0) {
+            return OVERDUE;
+        } else if (timeDifference <= DUE_SOON_MILLIS) {
+            return DUE_SOON;
+        }
+        return ON_TIME;
+    }
+
+    /**
+     * Returns the next time at which the status of a task changes.
+     *
+     * @param taskTime The timestamp of the task.
+     * @param now The current time.
+     * @return The first time after now with a different status, or NO_TRANSITION if the task is already overdue.
+     */
+    public static long nextTransition(long taskTime, long now) {
+        long dueSoonTime = taskTime - DUE_SOON_MILLIS;
+        if (dueSoonTime > now) {
+            return dueSoonTime;
+        } else if (taskTime > now) {
+            return taskTime;
+        }
+        return NO_TRANSITION;
+    }
+}
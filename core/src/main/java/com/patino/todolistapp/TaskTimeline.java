@@ -0,0 +1,322 @@
+package com.patino.todolistapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+
+/**
+ * Merges stored tasks with the occurrences of recurring series, in (timestamp, ID) order.
+ *
+ * Series are never expanded ahead of time: each merge only computes the occurrences that fall inside the window being
+ * read, so a daily series that repeats forever costs the same as a single task. Occurrence IDs are negative (see
+ * TaskSeries.toOccurrence()), so at the same time an occurrence comes before every stored task.
+ */
+public final class TaskTimeline {
+
+    private TaskTimeline() {
+    }
+
+    /**
+     * Merges one page of stored tasks with the occurrences that fall inside it.
+     *
+     * When the page of tasks is full, occurrences are only taken up to its last task, since later ones would be out
+     * of order with the tasks of the next page; otherwise the occurrences fill the page.
+     *
+     * @param tasks The page of stored tasks after position.getLastTask(), in order.
+     * @param limit The number of tasks that were asked for, which is also the size of the merged page.
+     * @param series The series that may have occurrences after the position.
+     * @param position Where the previous page ended, or Position.START.
+     * @param zone The time zone whose calendar the series follow.
+     * @return The merged page.
+     */
+    public static Page<Task> mergePage(List<Task> tasks, int limit, List<TaskSeries> series, Position position,
+                                       TimeZone zone) {
+        boolean tasksFull = tasks.size() >= limit;
+        long windowEnd = tasksFull ? tasks.get(tasks.size() - 1).getTimestamp() : Long.MAX_VALUE;
+
+        PriorityQueue<Cursor> occurrences = new PriorityQueue<>();
+        for (TaskSeries item : series) {
+            Cursor cursor = Cursor.after(item, position, zone);
+            if (cursor != null) {
+                occurrences.add(cursor);
+            }
+        }
+
+        List<Task> items = new ArrayList<>(limit);
+        Task lastTask = position.lastTask;
+        Task lastOccurrence = position.lastOccurrence;
+        int taskIndex = 0;
+        while (items.size() < limit) {
+            Task task = taskIndex < tasks.size() ? tasks.get(taskIndex) : null;
+            Cursor cursor = occurrences.peek();
+            if (cursor != null && cursor.time > windowEnd) {
+                cursor = null;
+            }
+            if (task == null && cursor == null) {
+                break;
+            }
+            if (cursor == null || task != null && compare(task.getTimestamp(), task.getId(), cursor.time, cursor.id) < 0) {
+                items.add(task);
+                lastTask = task;
+                taskIndex++;
+            } else {
+                occurrences.poll();
+                lastOccurrence = cursor.series.toOccurrence(cursor.time);
+                items.add(lastOccurrence);
+                if (cursor.advance(zone)) {
+                    occurrences.add(cursor);
+                }
+            }
+        }
+
+        boolean hasMore = tasksFull || taskIndex < tasks.size() || !occurrences.isEmpty();
+        return new Page<>(items, new Position(lastTask, lastOccurrence, position.earliestOccurrence), hasMore);
+    }
+
+    /**
+     * Merges the next due tasks with the series occurrences due at the same time, or sooner.
+     *
+     * @param tasks The stored tasks due first after the time, all with the same timestamp.
+     * @param series The series that may have occurrences after the time.
+     * @param after The exclusive lower bound.
+     * @param zone The time zone whose calendar the series follow.
+     * @return Every task and occurrence due at the earliest time after the bound.
+     */
+    public static TaskSnapshot nextDue(TaskSnapshot tasks, List<TaskSeries> series, long after, TimeZone zone) {
+        long first = tasks.isEmpty() ? Long.MAX_VALUE : tasks.getTimestamp(0);
+        for (TaskSeries item : series) {
+            first = Math.min(first, item.nextOccurrenceAfter(after, zone));
+        }
+        if (first == Long.MAX_VALUE) {
+            return tasks;
+        }
+        return between(tasks, series, first, first + 1, zone);
+    }
+
+    /**
+     * Merges stored tasks with the series occurrences in a time range.
+     *
+     * @param tasks The stored tasks in the range, in order.
+     * @param series The series that may have occurrences in the range.
+     * @param start The inclusive start of the range.
+     * @param end The exclusive end of the range.
+     * @param zone The time zone whose calendar the series follow.
+     * @return The tasks and occurrences in the range. Stored tasks outside it are left out.
+     */
+    public static TaskSnapshot between(TaskSnapshot tasks, List<TaskSeries> series, long start, long end,
+                                       TimeZone zone) {
+        List<Task> occurrences = new ArrayList<>();
+        for (TaskSeries item : series) {
+            int index = item.indexOfFirstAtOrAfter(start, zone);
+            long time = item.getOccurrence(index, zone);
+            while (time < end && item.includes(index, time)) {
+                occurrences.add(item.toOccurrence(time));
+                index++;
+                time = item.getOccurrence(index, zone);
+            }
+        }
+        Collections.sort(occurrences, TaskSchedule.BY_DUE_TIME);
+
+        TaskSnapshot.Builder builder = new TaskSnapshot.Builder(tasks.size() + occurrences.size());
+        int taskIndex = tasks.indexOfFirstAtOrAfter(start);
+        int occurrenceIndex = 0;
+        while (true) {
+            boolean hasTask = taskIndex < tasks.size() && tasks.getTimestamp(taskIndex) < end;
+            boolean hasOccurrence = occurrenceIndex < occurrences.size();
+            if (!hasTask && !hasOccurrence) {
+                break;
+            }
+            Task occurrence = hasOccurrence ? occurrences.get(occurrenceIndex) : null;
+            if (!hasOccurrence || hasTask && compare(tasks.getTimestamp(taskIndex), tasks.getId(taskIndex),
+                    occurrence.getTimestamp(), occurrence.getId()) < 0) {
+                builder.add(tasks.getId(taskIndex), tasks.getTimestamp(taskIndex), tasks.getTitle(taskIndex));
+                taskIndex++;
+            } else {
+                builder.add(occurrence.getId(), occurrence.getTimestamp(), occurrence.getTitle());
+                occurrenceIndex++;
+            }
+        }
+        return builder.build();
+    }
+
+    private static int compare(long time, int id, long otherTime, int otherId) {
+        if (time != otherTime) {
+            return time < otherTime ? -1 : 1;
+        }
+        return Integer.compare(id, otherId);
+    }
+
+    /**
+     * Where a page ended, kept separately for stored tasks and for occurrences, since the next page reads each from
+     * its own last item.
+     *
+     * A position may also hold the time of the earliest occurrence to show, which every following position keeps, so
+     * the occurrences of a series that started long ago do not pile up at the top of the list.
+     */
+    public static final class Position {
+        public static final Position START = new Position(null, null);
+
+        private final Task lastTask;
+        private final Task lastOccurrence;
+        private final long earliestOccurrence; // Long.MIN_VALUE to show every occurrence
+
+        // Class Constructor
+        public Position(Task lastTask, Task lastOccurrence) {
+            this(lastTask, lastOccurrence, Long.MIN_VALUE);
+        }
+
+        // Class Constructor
+        public Position(Task lastTask, Task lastOccurrence, long earliestOccurrence) {
+            this.lastTask = lastTask;
+            this.lastOccurrence = lastOccurrence;
+            this.earliestOccurrence = earliestOccurrence;
+        }
+
+        /**
+         * Returns the start of a list that leaves out the occurrences before a time.
+         *
+         * @param earliestOccurrence The time of the earliest occurrence to show.
+         * @return The position to read the first page from.
+         */
+        public static Position startingAt(long earliestOccurrence) {
+            return new Position(null, null, earliestOccurrence);
+        }
+
+        /**
+         * Returns the time of the earliest occurrence to show.
+         *
+         * @return The time, or Long.MIN_VALUE if every occurrence is shown.
+         */
+        public long getEarliestOccurrence() {
+            return earliestOccurrence;
+        }
+
+        /**
+         * Returns the last stored task read so far, the keyset to read the next page of tasks after.
+         *
+         * @return The task, or null if none has been read.
+         */
+        public Task getLastTask() {
+            return lastTask;
+        }
+
+        /**
+         * Returns the last occurrence read so far.
+         *
+         * @return The occurrence, or null if none has been read.
+         */
+        public Task getLastOccurrence() {
+            return lastOccurrence;
+        }
+
+        /**
+         * Returns the last item read so far, stored task or occurrence, which ends the previous page.
+         *
+         * @return The item, or null if none has been read.
+         */
+        public Task getLastItem() {
+            if (lastTask == null || lastOccurrence == null) {
+                return lastTask != null ? lastTask : lastOccurrence;
+            }
+            return compare(lastTask.getTimestamp(), lastTask.getId(), lastOccurrence.getTimestamp(),
+                    lastOccurrence.getId()) > 0 ? lastTask : lastOccurrence;
+        }
+    }
+
+    /**
+     * A page of merged items and where the next one starts.
+     *
+     * @param <T> The type of the items.
+     */
+    public static final class Page<T> {
+        private final List<T> items;
+        private final Position next;
+        private final boolean hasMore;
+
+        // Class Constructor
+        public Page(List<T> items, Position next, boolean hasMore) {
+            this.items = items;
+            this.next = next;
+            this.hasMore = hasMore;
+        }
+
+        public List<T> getItems() {
+            return items;
+        }
+
+        public Position getNext() {
+            return next;
+        }
+
+        public boolean hasMore() {
+            return hasMore;
+        }
+
+        /**
+         * Creates a page with the same position holding other items, such as rows built from these tasks.
+         *
+         * @param items The new items, one per item of this page.
+         * @return The new page.
+         */
+        public <R> Page<R> withItems(List<R> items) {
+            return new Page<>(items, next, hasMore);
+        }
+    }
+
+    /**
+     * The next occurrence of one series during a merge.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+        final TaskSeries series;
+        final int id;
+        int index;
+        long time;
+
+        private Cursor(TaskSeries series, int index, long time) {
+            this.series = series;
+            this.id = -series.getId();
+            this.index = index;
+            this.time = time;
+        }
+
+        /**
+         * Positions a cursor on the first occurrence ordered after the last occurrence of a position, and not before
+         * its earliest occurrence.
+         *
+         * @return The cursor, or null if the series has no occurrence left.
+         */
+        static Cursor after(TaskSeries series, Position position, TimeZone zone) {
+            Task lastOccurrence = position.lastOccurrence;
+            int index = 0;
+            if (lastOccurrence == null && position.earliestOccurrence != Long.MIN_VALUE) {
+                index = series.indexOfFirstAtOrAfter(position.earliestOccurrence, zone);
+            } else if (lastOccurrence != null) {
+                long lastTime = lastOccurrence.getTimestamp();
+                index = series.indexOfFirstAtOrAfter(lastTime, zone);
+                if (series.getOccurrence(index, zone) == lastTime && -series.getId() <= lastOccurrence.getId()) {
+                    index++;
+                }
+            }
+            long time = series.getOccurrence(index, zone);
+            return series.includes(index, time) ? new Cursor(series, index, time) : null;
+        }
+
+        /**
+         * Moves to the next occurrence.
+         *
+         * @return False if the series has no occurrence left.
+         */
+        boolean advance(TimeZone zone) {
+            index++;
+            time = series.getOccurrence(index, zone);
+            return series.includes(index, time);
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return compare(time, id, other.time, other.id);
+        }
+    }
+}
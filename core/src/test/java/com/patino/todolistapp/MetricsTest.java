@@ -0,0 +1,77 @@
+package com.patino.todolistapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+public class MetricsTest {
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        Metrics.Histogram histogram = Metrics.histogram("test.disabled");
+        Metrics.Counter counter = Metrics.counter("test.disabled");
+
+        assertEquals(0, Metrics.startTimer());
+        histogram.stopTimer(Metrics.startTimer());
+        histogram.record(1_000_000);
+        counter.increment();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void histogram_placesLatenciesInBuckets() {
+        Metrics.setEnabled(true);
+        Metrics.Histogram histogram = Metrics.histogram("test.buckets");
+        for (int i = 0; i < 90; i++) {
+            histogram.record(40_000); // 40us
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(3_000_000); // 3ms
+        }
+        histogram.record(5_000_000_000L); // 5s
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(90, histogram.getBucketCount(0));
+        assertEquals(1, histogram.getBucketCount(Metrics.Histogram.BUCKET_BOUNDS_MICROS.length));
+        assertEquals(50, histogram.getPercentileMicros(0.5));
+        assertEquals(5_000, histogram.getPercentileMicros(0.95));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileMicros(1));
+    }
+
+    @Test
+    public void registry_isSharedAndLockFreeAcrossThreads() throws InterruptedException {
+        Metrics.setEnabled(true);
+        assertTrue(Metrics.counter("test.shared") == Metrics.counter("test.shared"));
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    Metrics.counter("test.shared").increment();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, Metrics.counter("test.shared").get());
+
+        StringWriter output = new StringWriter();
+        Metrics.dump(new PrintWriter(output), "");
+        assertTrue(output.toString().contains("test.shared = 40000"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.patino.todolistapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PendingChangesTest {
+
+    @Test
+    public void repeatedChanges_areCoalesced() {
+        PendingChanges changes = new PendingChanges();
+        changes.update(new Task(1, "Primera", "", 100));
+        changes.update(new Task(1, "Segunda", "", 200));
+        changes.update(new Task(2, "Editada", "", 300));
+        changes.delete(new Task(2, "Editada", "", 300));
+        changes.delete(new Task(3, "Borrada", "", 400));
+        changes.update(new Task(3, "Tarde", "", 400)); // The row is already gone
+
+        PendingChanges batch = changes.drain();
+
+        assertTrue(changes.isEmpty());
+        assertEquals(1, batch.getUpdates().size());
+        assertEquals("Segunda", batch.getUpdates().get(0).getTitle());
+        assertEquals(Arrays.asList(2, 3), batch.getDeletedIds());
+    }
+
+    @Test
+    public void undoDeletes_restoresTasksAndKeepsEdits() {
+        PendingChanges changes = new PendingChanges();
+        changes.update(new Task(1, "Editada", "", 100));
+        changes.delete(new Task(1, "Original", "", 50));
+        changes.delete(new Task(2, "Otra", "", 200));
+
+        List<Task> restored = changes.undoDeletes();
+
+        assertEquals(2, restored.size());
+        assertEquals("Editada", restored.get(0).getTitle());
+        assertEquals(0, changes.getDeleteCount());
+        assertEquals("Editada", changes.getUpdate(1).getTitle());
+        assertTrue(changes.drain().getDeletedIds().isEmpty());
+    }
+
+    @Test
+    public void applyTo_showsTheListAsItWillBe() {
+        List<Task> stored = Arrays.asList(new Task(1, "A", "", 100), new Task(2, "B", "", 200),
+                new Task(3, "C", "", 300));
+        PendingChanges changes = new PendingChanges();
+        assertSame(stored, changes.applyTo(stored));
+
+        changes.delete(stored.get(0));
+        changes.update(new Task(3, "C editada", "", 300));
+        PendingChanges copy = changes.copy();
+        changes.undoDeletes();
+
+        List<Task> applied = copy.applyTo(stored);
+        assertEquals(2, applied.size());
+        assertEquals(2, applied.get(0).getId());
+        assertEquals("C editada", applied.get(1).getTitle());
+        assertNull(copy.getUpdate(1));
+        assertEquals(Collections.emptyList(), copy.applyTo(Collections.<Task>emptyList()));
+    }
+
+    @Test
+    public void applyToPage_movesEditedTasksToThePageTheyNowSortIn() {
+        List<Task> firstPage = Arrays.asList(new Task(1, "A", "", 100), new Task(2, "B", "", 200));
+        List<Task> secondPage = Arrays.asList(new Task(3, "C", "", 300), new Task(4, "D", "", 400));
+        PendingChanges changes = new PendingChanges();
+        assertSame(firstPage, changes.applyToPage(firstPage, null, true));
+
+        changes.update(new Task(1, "A movida", "", 350));
+        changes.update(new Task(4, "D movida", "", 150));
+        changes.update(new Task(5, "E movida", "", 900)); // Read with a later page
+
+        List<Task> first = changes.applyToPage(firstPage, null, true);
+        List<Task> second = changes.applyToPage(secondPage, firstPage.get(1), false);
+
+        assertEquals(Arrays.asList(4, 2), ids(first));
+        assertEquals("D movida", first.get(0).getTitle());
+        assertEquals(Arrays.asList(3, 1, 5), ids(second));
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        List<Integer> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+}
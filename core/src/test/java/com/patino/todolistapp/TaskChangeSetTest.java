@@ -0,0 +1,33 @@
+package com.patino.todolistapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TaskChangeSetTest {
+
+    @Test
+    public void touchedIds_coverChangedAndDeletedTasks() {
+        TaskChangeSet changes = TaskChangeSet.of(Arrays.asList(new Task(4, "A", "", 100), new Task(2, "B", "", 200)),
+                Arrays.asList(7, 2));
+
+        assertEquals(Arrays.asList(7, 2, 4), new ArrayList<>(changes.getTouchedIds()));
+        assertFalse(changes.isEmpty());
+        assertFalse(changes.isAllChanged());
+    }
+
+    @Test
+    public void wholesaleChanges_areFlagged() {
+        assertTrue(TaskChangeSet.SERIES.isSeriesChanged());
+        assertFalse(TaskChangeSet.SERIES.isAllChanged());
+        assertTrue(TaskChangeSet.ALL.isAllChanged());
+        assertTrue(TaskChangeSet.of(Collections.<Task>emptyList(), Collections.<Integer>emptyList()).isEmpty());
+        assertEquals(Collections.singleton(3), TaskChangeSet.deleted(3).getTouchedIds());
+    }
+}
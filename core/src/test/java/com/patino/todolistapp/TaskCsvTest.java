@@ -0,0 +1,122 @@
+package com.patino.todolistapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+public class TaskCsvTest {
+
+    @Test
+    public void roundTrip_keepsQuotesCommasAndLineBreaks() throws IOException {
+        StringWriter output = new StringWriter();
+        TaskCsv.writeHeader(output);
+        TaskCsv.writeRow(output, "Comprar pan, leche", "Decir \"hola\"\r\nDos líneas", 100);
+        TaskCsv.writeRow(output, "Simple", null, 200);
+
+        TaskCsv.RowReader reader = new TaskCsv.RowReader(new StringReader(output.toString()));
+        Task first = reader.next();
+        Task second = reader.next();
+
+        assertEquals("Comprar pan, leche", first.getTitle());
+        assertEquals("Decir \"hola\"\r\nDos líneas", first.getDescription());
+        assertEquals(100, first.getTimestamp());
+        assertEquals("Simple", second.getTitle());
+        assertEquals("", second.getDescription());
+        assertEquals(200, second.getTimestamp());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void roundTrip_keepsArchivedState() throws IOException {
+        StringWriter output = new StringWriter();
+        TaskCsv.writeHeader(output);
+        TaskCsv.writeRow(output, "Pendiente", "", 100);
+        TaskCsv.writeArchivedRow(output, "Hecha", "", 200, true, 250);
+        TaskCsv.writeArchivedRow(output, "Pasada", "", 300, false, 400);
+
+        TaskCsv.RowReader reader = new TaskCsv.RowReader(new StringReader(output.toString()));
+        reader.next();
+        assertFalse(reader.isArchived());
+        reader.next();
+        assertTrue(reader.isArchived());
+        assertTrue(reader.isCompleted());
+        assertEquals(250, reader.getArchivedTimestamp());
+        assertEquals(300, reader.next().getTimestamp());
+        assertTrue(reader.isArchived());
+        assertFalse(reader.isCompleted());
+        assertEquals(400, reader.getArchivedTimestamp());
+    }
+
+    @Test
+    public void roundTrip_keepsRepeatRules() throws IOException {
+        StringWriter output = new StringWriter();
+        TaskCsv.writeHeader(output);
+        TaskCsv.writeSeriesRow(output, new TaskSeries(7, "Diaria", "", 100, TaskSeries.DAILY, 1, TaskSeries.NO_END,
+                TaskSeries.UNLIMITED));
+        TaskCsv.writeSeriesRow(output, new TaskSeries(8, "Quincenal", "a, b", 200, TaskSeries.WEEKLY, 2, 5000, 10));
+        TaskCsv.writeRow(output, "Sola", "", 300);
+
+        TaskCsv.RowReader reader = new TaskCsv.RowReader(new StringReader(output.toString()));
+        reader.next();
+        TaskSeries daily = reader.getSeries();
+        assertEquals(TaskSeries.DAILY, daily.getFrequency());
+        assertEquals(1, daily.getInterval());
+        assertEquals(TaskSeries.NO_END, daily.getUntilTime());
+        assertEquals(TaskSeries.UNLIMITED, daily.getCount());
+        reader.next();
+        TaskSeries weekly = reader.getSeries();
+        assertEquals("a, b", weekly.getDescription());
+        assertEquals(200, weekly.getStartTime());
+        assertEquals(TaskSeries.WEEKLY, weekly.getFrequency());
+        assertEquals(2, weekly.getInterval());
+        assertEquals(5000, weekly.getUntilTime());
+        assertEquals(10, weekly.getCount());
+        reader.next();
+        assertNull(reader.getSeries());
+    }
+
+    @Test(expected = IOException.class)
+    public void reader_rejectsUnknownRepeatRules() throws IOException {
+        new TaskCsv.RowReader(new StringReader(TaskCsv.HEADER + "\nA,b,1,,,yearly;interval=1\n")).next();
+    }
+
+    @Test
+    public void reader_acceptsFilesWithoutTheRepeatColumn() throws IOException {
+        TaskCsv.RowReader reader = new TaskCsv.RowReader(new StringReader(TaskCsv.HEADER_V2 + "\nA,b,1,done,2\n"));
+
+        assertEquals("A", reader.next().getTitle());
+        assertTrue(reader.isCompleted());
+        assertNull(reader.getSeries());
+    }
+
+    @Test
+    public void reader_acceptsBareLineFeedsAndBlankLines() throws IOException {
+        TaskCsv.RowReader reader = new TaskCsv.RowReader(new StringReader(TaskCsv.HEADER_V1 + "\nA,b,1\n\nC,d,2"));
+
+        assertEquals("A", reader.next().getTitle());
+        assertEquals(2, reader.next().getTimestamp());
+        assertNull(reader.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void reader_rejectsOtherFiles() throws IOException {
+        new TaskCsv.RowReader(new StringReader("id,name\n1,a\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void reader_rejectsMalformedRows() throws IOException {
+        new TaskCsv.RowReader(new StringReader(TaskCsv.HEADER + "\n\"open,b,1,,\n")).next();
+    }
+
+    @Test(expected = IOException.class)
+    public void reader_rejectsUnknownStates() throws IOException {
+        new TaskCsv.RowReader(new StringReader(TaskCsv.HEADER + "\nA,b,1,lost,2,\n")).next();
+    }
+}
@@ -0,0 +1,99 @@
+package com.patino.todolistapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+public class TaskPageFileTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("first-page", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void roundTrip_keepsTasksAndPosition() throws IOException {
+        List<Task> tasks = Arrays.asList(
+                new Task(-4, "Diaria", null, 100),
+                new Task(7, "Comprar pan", "Integral, sin semillas", 100),
+                new Task(3, null, "", 200));
+        TaskTimeline.Page<Task> written = new TaskTimeline.Page<>(tasks, TaskTimeline.Position.startingAt(90), true);
+
+        TaskPageFile.write(file, written, 50);
+        TaskTimeline.Page<Task> read = TaskPageFile.read(file, 50);
+
+        assertEquals(3, read.getItems().size());
+        assertTrue(read.hasMore());
+        assertEquals(-4, read.getItems().get(0).getId());
+        assertNull(read.getItems().get(0).getDescription());
+        assertEquals("Integral, sin semillas", read.getItems().get(1).getDescription());
+        assertNull(read.getItems().get(2).getTitle());
+        assertEquals(200, read.getItems().get(2).getTimestamp());
+        assertEquals(3, read.getNext().getLastTask().getId());
+        assertEquals(-4, read.getNext().getLastOccurrence().getId());
+        assertEquals(90, read.getNext().getEarliestOccurrence());
+    }
+
+    @Test
+    public void missingFileOrOtherLimit_isNotUsed() throws IOException {
+        file.delete();
+        assertNull(TaskPageFile.read(file, 50));
+
+        TaskPageFile.write(file, new TaskTimeline.Page<>(Arrays.asList(new Task(1, "A", "", 1)),
+                TaskTimeline.Position.START, false), 50);
+        assertNull(TaskPageFile.read(file, 100));
+    }
+
+    @Test
+    public void corruptFile_isRejected() throws IOException {
+        TaskPageFile.write(file, new TaskTimeline.Page<>(Arrays.asList(new Task(1, "Tarea", "Descripción", 1)),
+                TaskTimeline.Position.START, false), 50);
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(file.length() - 1);
+            output.write(output.read() ^ 0xFF);
+        }
+        assertRejected();
+
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(TaskPageFile.HEADER_BYTES + 3);
+        }
+        assertRejected();
+    }
+
+    @Test
+    public void otherFormatVersion_isRejected() throws IOException {
+        TaskPageFile.write(file, new TaskTimeline.Page<>(Arrays.asList(new Task(1, "A", "", 1)),
+                TaskTimeline.Position.START, false), 50);
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(4);
+            output.write(TaskPageFile.FORMAT_VERSION + 1);
+        }
+        assertRejected();
+    }
+
+    private void assertRejected() {
+        try {
+            TaskPageFile.read(file, 50);
+            fail("The file should have been rejected");
+        } catch (IOException expected) {
+            // The caller falls back to the database
+        }
+    }
+}
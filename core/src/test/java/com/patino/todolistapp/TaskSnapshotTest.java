@@ -0,0 +1,47 @@
+package com.patino.todolistapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TaskSnapshotTest {
+
+    @Test
+    public void columns_holdTasksInOrder() {
+        TaskSnapshot snapshot = new TaskSnapshot.Builder(1) // Grows past the expected size
+                .add(3, 100, "Comprar leche")
+                .add(1, 200, (String) null)
+                .add(2, 200, "Leer")
+                .build();
+
+        assertEquals(3, snapshot.size());
+        assertEquals(3, snapshot.getId(0));
+        assertEquals("Comprar leche", snapshot.getTitle(0));
+        assertEquals("", snapshot.getTitle(1));
+        assertEquals("Leer", snapshot.getTitle(2));
+        assertEquals(200, snapshot.getTask(2).getTimestamp());
+        assertTrue(TaskSnapshot.EMPTY.isEmpty());
+    }
+
+    @Test
+    public void binarySearch_findsTimeBoundaries() {
+        TaskSnapshot.Builder builder = new TaskSnapshot.Builder(1000);
+        for (int i = 0; i < 1000; i++) {
+            builder.add(i + 1, (i / 2) * 10L, "Tarea " + i); // Two tasks per timestamp
+        }
+        TaskSnapshot snapshot = builder.build();
+
+        assertEquals(0, snapshot.indexOfFirstAtOrAfter(Long.MIN_VALUE));
+        assertEquals(20, snapshot.indexOfFirstAtOrAfter(100));
+        assertEquals(22, snapshot.indexOfFirstAfter(100));
+        assertEquals(22, snapshot.indexOfFirstAtOrAfter(101));
+        assertEquals(1000, snapshot.indexOfFirstAfter(4990));
+        assertEquals(1000, snapshot.indexOfFirstAfter(Long.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_rejectsUnorderedTasks() {
+        new TaskSnapshot.Builder(2).add(1, 200, "B").add(2, 100, "A");
+    }
+}
@@ -0,0 +1,50 @@
+package com.patino.todolistapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TaskStatusTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void classify_usesTenMinuteBoundary() {
+        assertEquals(TaskStatus.ON_TIME, TaskStatus.classify(NOW + TaskStatus.DUE_SOON_MILLIS + 1, NOW));
+        assertEquals(TaskStatus.DUE_SOON, TaskStatus.classify(NOW + TaskStatus.DUE_SOON_MILLIS, NOW));
+        assertEquals(TaskStatus.DUE_SOON, TaskStatus.classify(NOW + 1, NOW));
+        assertEquals(TaskStatus.OVERDUE, TaskStatus.classify(NOW, NOW));
+    }
+
+    @Test
+    public void nextTransition_changesStatus() {
+        long taskTime = NOW + 60 * 60 * 1000;
+        long first = TaskStatus.nextTransition(taskTime, NOW);
+        assertEquals(taskTime - TaskStatus.DUE_SOON_MILLIS, first);
+        assertEquals(TaskStatus.DUE_SOON, TaskStatus.classify(taskTime, first));
+        assertTrue(TaskStatus.classify(taskTime, first - 1) != TaskStatus.classify(taskTime, first));
+
+        long second = TaskStatus.nextTransition(taskTime, first);
+        assertEquals(taskTime, second);
+        assertEquals(TaskStatus.OVERDUE, TaskStatus.classify(taskTime, second));
+        assertEquals(TaskStatus.NO_TRANSITION, TaskStatus.nextTransition(taskTime, second));
+    }
+
+    @Test
+    public void byDueTime_ordersByTimeThenId() {
+        Task late = new Task(1, "late", "", NOW + 2);
+        Task earlySecond = new Task(3, "early b", "", NOW + 1);
+        Task earlyFirst = new Task(2, "early a", "", NOW + 1);
+        List<Task> tasks = new ArrayList<>(Arrays.asList(late, earlySecond, earlyFirst));
+
+        Collections.sort(tasks, TaskSchedule.BY_DUE_TIME);
+
+        assertEquals(Arrays.asList(earlyFirst, earlySecond, late), tasks);
+        assertEquals(NOW - TaskSchedule.REMINDER_OFFSET_MILLIS, TaskSchedule.reminderTime(NOW));
+    }
+}
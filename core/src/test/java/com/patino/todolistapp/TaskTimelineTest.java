@@ -0,0 +1,175 @@
+package com.patino.todolistapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+public class TaskTimelineTest {
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Europe/Madrid");
+    private static final long DAY = 86_400_000L;
+
+    private static long time(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance(ZONE);
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void monthlySeries_clampsToShortMonths() {
+        TaskSeries series = new TaskSeries(1, "Pagar alquiler", "", time(2024, Calendar.JANUARY, 31, 9),
+                TaskSeries.MONTHLY, 1, TaskSeries.NO_END, TaskSeries.UNLIMITED);
+
+        assertEquals(time(2024, Calendar.FEBRUARY, 29, 9), series.getOccurrence(1, ZONE));
+        assertEquals(time(2024, Calendar.MARCH, 31, 9), series.getOccurrence(2, ZONE));
+        assertEquals(time(2024, Calendar.APRIL, 30, 9), series.getOccurrence(3, ZONE));
+    }
+
+    @Test
+    public void dailySeries_keepsLocalTimeAcrossDst() {
+        TaskSeries series = new TaskSeries(1, "Regar", "", time(2024, Calendar.MARCH, 30, 9),
+                TaskSeries.DAILY, 1, TaskSeries.NO_END, TaskSeries.UNLIMITED);
+
+        assertEquals(time(2024, Calendar.MARCH, 31, 9), series.getOccurrence(1, ZONE));
+        assertEquals(time(2024, Calendar.APRIL, 1, 9), series.getOccurrence(2, ZONE));
+    }
+
+    @Test
+    public void nextOccurrence_isFoundFarFromTheStartAndStopsAtTheEnd() {
+        long start = time(2000, Calendar.JANUARY, 1, 8);
+        TaskSeries forever = new TaskSeries(1, "Diaria", "", start, TaskSeries.DAILY, 3,
+                TaskSeries.NO_END, TaskSeries.UNLIMITED);
+        long now = time(2030, Calendar.JUNE, 15, 12);
+
+        long next = forever.nextOccurrenceAfter(now, ZONE);
+        assertTrue(next > now);
+        assertTrue(next - now <= 3 * DAY);
+        assertEquals(next, forever.nextOccurrenceAfter(next - 1, ZONE));
+        assertTrue(forever.nextOccurrenceAfter(next, ZONE) > next);
+
+        TaskSeries counted = new TaskSeries(2, "Semanal", "", start, TaskSeries.WEEKLY, 1,
+                TaskSeries.NO_END, 3);
+        assertEquals(start + 14 * DAY, counted.getEndTime(ZONE));
+        assertEquals(start + 14 * DAY, counted.nextOccurrenceAfter(start + 7 * DAY, ZONE));
+        assertEquals(TaskSeries.NO_END, counted.nextOccurrenceAfter(start + 14 * DAY, ZONE));
+
+        TaskSeries until = new TaskSeries(3, "Hasta", "", start, TaskSeries.DAILY, 1, start + DAY, TaskSeries.UNLIMITED);
+        assertEquals(TaskSeries.NO_END, until.nextOccurrenceAfter(start + DAY, ZONE));
+    }
+
+    @Test
+    public void parseCount_takesOnlyAnEmptyFieldForUnlimited() {
+        assertEquals(TaskSeries.UNLIMITED, TaskSeries.parseCount(""));
+        assertEquals(TaskSeries.UNLIMITED, TaskSeries.parseCount("  "));
+        assertEquals(10, TaskSeries.parseCount(" 10 "));
+        assertEquals(-1, TaskSeries.parseCount("0"));
+        assertEquals(-1, TaskSeries.parseCount("-3"));
+        assertEquals(-1, TaskSeries.parseCount("diez"));
+    }
+
+    @Test
+    public void mergePage_interleavesOccurrencesAcrossPages() {
+        long start = time(2024, Calendar.MAY, 1, 0);
+        TaskSeries series = new TaskSeries(7, "Diaria", "", start, TaskSeries.DAILY, 1,
+                TaskSeries.NO_END, TaskSeries.UNLIMITED);
+        List<Task> stored = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            stored.add(new Task(i + 1, "Tarea " + i, "", start + i * DAY / 2)); // Two tasks per day
+        }
+
+        List<Task> merged = new ArrayList<>();
+        TaskTimeline.Position position = TaskTimeline.Position.START;
+        boolean hasMore = true;
+        while (hasMore && merged.size() < 20) {
+            List<Task> page = pageAfter(stored, position.getLastTask(), 4);
+            TaskTimeline.Page<Task> result = TaskTimeline.mergePage(page, 4, Collections.singletonList(series),
+                    position, ZONE);
+            merged.addAll(result.getItems());
+            position = result.getNext();
+            hasMore = result.hasMore();
+        }
+
+        assertEquals(20, merged.size());
+        for (int i = 1; i < merged.size(); i++) {
+            assertTrue(TaskSchedule.BY_DUE_TIME.compare(merged.get(i - 1), merged.get(i)) < 0);
+        }
+        // The occurrence sorts first when it shares its time with a stored task
+        assertEquals(-7, merged.get(0).getId());
+        assertEquals(1, merged.get(1).getId());
+        // Once the stored tasks run out, the series alone fills the page and the list never ends
+        TaskTimeline.Page<Task> tail = TaskTimeline.mergePage(Collections.<Task>emptyList(), 4,
+                Collections.singletonList(series), position, ZONE);
+        assertEquals(4, tail.getItems().size());
+        assertTrue(tail.hasMore());
+    }
+
+    @Test
+    public void mergePage_startingAt_leavesOutEarlierOccurrencesOnEveryPage() {
+        long start = time(2024, Calendar.MAY, 1, 9);
+        long from = start + 20 * DAY;
+        TaskSeries series = new TaskSeries(7, "Diaria", "", start, TaskSeries.DAILY, 1,
+                TaskSeries.NO_END, TaskSeries.UNLIMITED);
+        List<Task> stored = Arrays.asList(new Task(1, "A", "", from - DAY), new Task(2, "B", "", from + 3 * DAY));
+
+        // The first page is full of stored tasks, so no occurrence is read and the position must keep the bound
+        TaskTimeline.Page<Task> first = TaskTimeline.mergePage(stored.subList(0, 1), 1,
+                Collections.singletonList(series), TaskTimeline.Position.startingAt(from), ZONE);
+        assertEquals(1, first.getItems().get(0).getId());
+        assertEquals(from, first.getNext().getEarliestOccurrence());
+
+        TaskTimeline.Page<Task> second = TaskTimeline.mergePage(stored.subList(1, 2), 4,
+                Collections.singletonList(series), first.getNext(), ZONE);
+        assertEquals(from, second.getItems().get(0).getTimestamp());
+        assertEquals(-7, second.getItems().get(0).getId());
+    }
+
+    @Test
+    public void mergePage_withoutSeries_keepsThePage() {
+        List<Task> stored = Arrays.asList(new Task(1, "A", "", 10), new Task(2, "B", "", 20));
+
+        TaskTimeline.Page<Task> page = TaskTimeline.mergePage(stored, 5, Collections.<TaskSeries>emptyList(),
+                TaskTimeline.Position.START, ZONE);
+
+        assertEquals(stored, page.getItems());
+        assertFalse(page.hasMore());
+        assertEquals(2, page.getNext().getLastTask().getId());
+    }
+
+    @Test
+    public void nextDue_picksTheEarliestOfTasksAndSeries() {
+        long start = time(2024, Calendar.MAY, 1, 9);
+        TaskSeries series = new TaskSeries(4, "Diaria", "", start, TaskSeries.DAILY, 1,
+                TaskSeries.NO_END, TaskSeries.UNLIMITED);
+        TaskSnapshot later = new TaskSnapshot.Builder(1).add(1, start + 5 * DAY, "Tarde").build();
+        TaskSnapshot same = new TaskSnapshot.Builder(1).add(1, start + DAY, "Misma hora").build();
+
+        TaskSnapshot due = TaskTimeline.nextDue(later, Collections.singletonList(series), start, ZONE);
+        assertEquals(1, due.size());
+        assertEquals(-4, due.getId(0));
+        assertEquals(start + DAY, due.getTimestamp(0));
+
+        due = TaskTimeline.nextDue(same, Collections.singletonList(series), start, ZONE);
+        assertEquals(2, due.size());
+        assertEquals(-4, due.getId(0));
+        assertEquals(1, due.getId(1));
+    }
+
+    private static List<Task> pageAfter(List<Task> stored, Task after, int limit) {
+        List<Task> page = new ArrayList<>();
+        for (Task task : stored) {
+            if ((after == null || TaskSchedule.BY_DUE_TIME.compare(task, after) > 0) && page.size() < limit) {
+                page.add(task);
+            }
+        }
+        return page;
+    }
+}